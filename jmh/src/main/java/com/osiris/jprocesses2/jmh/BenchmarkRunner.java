@@ -0,0 +1,22 @@
+package com.osiris.jprocesses2.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Same as the default JMH main, but always adds the GC profiler,
+ * thus reports the allocation rate (gc.alloc.rate.norm) next to the throughput of each benchmark. <br>
+ * Accepts the usual JMH arguments, for example a benchmark regex: java -jar benchmarks.jar ParserBenchmark
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,32 @@
+package com.osiris.jprocesses2.jmh;
+
+import com.osiris.jprocesses2.util.NativeUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses start timestamps in the format ps prints them, as done by JProcess.getTimestampStart().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateBenchmark {
+    private final NativeUtils nativeUtils = new NativeUtils();
+
+    /**
+     * Returns the parsed date, or the exception if it couldn't be parsed, since that is part of the cost too.
+     */
+    @Benchmark
+    public Object parseUnixLongTimeToFullDate() {
+        try {
+            return nativeUtils.parseUnixLongTimeToFullDate("Mon Oct  5 08:00:01 2026");
+        } catch (ParseException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.osiris.jprocesses2.jmh;
+
+import com.osiris.jprocesses2.JProcess;
+import com.osiris.jprocesses2.JProcessExtra;
+import com.osiris.jprocesses2.ProcessUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches the real processes of this system, via its default source.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FetchBenchmark {
+    private final ProcessUtils processUtils = new ProcessUtils();
+    private JProcess thisProcess;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        thisProcess = processUtils.getThis();
+    }
+
+    @Benchmark
+    public List<JProcess> getProcesses() throws IOException {
+        return processUtils.getProcesses();
+    }
+
+    @Benchmark
+    public JProcessExtra getExtraInfo() throws IOException {
+        return thisProcess.getExtraInfo();
+    }
+}
@@ -0,0 +1,83 @@
+package com.osiris.jprocesses2.jmh;
+
+import com.osiris.jprocesses2.JProcess;
+import com.osiris.jprocesses2.ProcessVisitor;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded ps and wmic outputs, repeated to the requested amount of processes.
+ */
+class Fixtures {
+
+    static String load(String resource) throws IOException {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/" + resource)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) out.write(buffer, 0, count);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns ps output with a header line and the provided amount of process lines.
+     */
+    static byte[] ps(int processes) throws IOException {
+        String[] lines = load("ps.txt").split("\n");
+        StringBuilder sb = new StringBuilder(lines[0]).append('\n');
+        for (int i = 0; i < processes; i++) {
+            sb.append(lines[1 + i % (lines.length - 1)]).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns wmic /VALUE output containing the provided amount of processes.
+     */
+    static byte[] wmic(int processes) throws IOException {
+        List<String> records = new ArrayList<>();
+        for (String record : load("wmic.txt").split("\r\r\n\r\r\n\r\r\n")) {
+            if (!record.trim().isEmpty()) records.add(record);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < processes; i++) {
+            sb.append(records.get(i % records.size())).append("\r\r\n\r\r\n\r\r\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns processes forming a binary tree, where pid 1 has the missing parent 0.
+     */
+    static List<JProcess> tree(int processes) {
+        List<JProcess> list = new ArrayList<>(processes);
+        for (int i = 1; i <= processes; i++) {
+            JProcess p = new JProcess();
+            p.pid = String.valueOf(i);
+            p.parentPid = String.valueOf(i / 2);
+            p.name = "p" + i;
+            list.add(p);
+        }
+        return list;
+    }
+
+    /**
+     * Visitor that hands every process to the blackhole.
+     */
+    static ProcessVisitor consume(final Blackhole blackhole) {
+        return new ProcessVisitor() {
+            @Override
+            public boolean visit(JProcess process) {
+                blackhole.consume(process);
+                return true;
+            }
+        };
+    }
+}
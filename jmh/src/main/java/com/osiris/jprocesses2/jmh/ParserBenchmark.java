@@ -0,0 +1,55 @@
+package com.osiris.jprocesses2.jmh;
+
+import com.osiris.jprocesses2.ProcessField;
+import com.osiris.jprocesses2.ProcessVisitor;
+import com.osiris.jprocesses2.PsParser;
+import com.osiris.jprocesses2.WmicParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses recorded ps and wmic outputs from memory, thus without starting processes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    private static final List<ProcessField> PS_COLUMNS = Arrays.asList(ProcessField.PID, ProcessField.USERNAME,
+            ProcessField.VIRTUAL_MEMORY, ProcessField.MEMORY, ProcessField.TIMESTAMP_START, ProcessField.PRIORITY,
+            ProcessField.PARENT_PID, ProcessField.NAME, ProcessField.COMMAND);
+
+    @Param({"1000", "10000", "100000"})
+    public int processes;
+    private byte[] ps, wmic;
+    private PsParser psParser;
+    private WmicParser wmicParser;
+    private ProcessVisitor visitor;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws IOException {
+        ps = Fixtures.ps(processes);
+        wmic = Fixtures.wmic(processes);
+        psParser = new PsParser(PS_COLUMNS);
+        wmicParser = new WmicParser(Arrays.asList(ProcessField.values()));
+        visitor = Fixtures.consume(blackhole);
+    }
+
+    @Benchmark
+    public boolean parsePs() throws IOException {
+        return psParser.parse(new ByteArrayInputStream(ps), visitor);
+    }
+
+    @Benchmark
+    public boolean parseWmic() throws IOException {
+        return wmicParser.parse(new ByteArrayInputStream(wmic), visitor);
+    }
+}
@@ -0,0 +1,35 @@
+package com.osiris.jprocesses2.jmh;
+
+import com.osiris.jprocesses2.JProcess;
+import com.osiris.jprocesses2.ProcessUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Links parent and child processes, which modifies the list, thus each invocation gets a new one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int processes;
+    private final ProcessUtils processUtils = new ProcessUtils();
+    private List<JProcess> list;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        list = Fixtures.tree(processes);
+    }
+
+    @Benchmark
+    public List<JProcess> setParentChildProcesses() {
+        processUtils.setParentChildProcesses(list);
+        return list;
+    }
+}
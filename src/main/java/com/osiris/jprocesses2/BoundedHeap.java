@@ -0,0 +1,92 @@
+package com.osiris.jprocesses2;
+
+import java.util.Arrays;
+
+/**
+ * Selects the ids of the n largest primitive values offered, without sorting all of them. <br>
+ * Min-heap of at most n values, thus offering runs in O(log n) and values
+ * smaller than the n-th largest one are rejected after a single comparison. <br>
+ * The ids are slots from 0 to n - 1, where callers store the element belonging to the value,
+ * thus nothing gets boxed. Not thread-safe. <br>
+ */
+class BoundedHeap {
+    private final long[] values;
+    private final int[] ids;
+    private int size;
+
+    BoundedHeap(int n) {
+        if (n < 0) throw new IllegalArgumentException("n must not be negative, but was " + n);
+        values = new long[n];
+        ids = new int[n];
+    }
+
+    /**
+     * Returns the slot where the caller must store the element of the provided value,
+     * possibly replacing the element of a smaller value, or -1 if the value is not among the n largest.
+     */
+    int offer(long value) {
+        if (size < values.length) {
+            int id = size;
+            values[size] = value;
+            ids[size] = id;
+            siftUp(size++);
+            return id;
+        }
+        if (size == 0 || value <= values[0]) return -1;
+        int id = ids[0];
+        values[0] = value;
+        siftDown(0);
+        return id;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the slots ordered by their values, largest first.
+     */
+    int[] sortedIds() {
+        long[] v = values.clone();
+        int[] result = ids.clone();
+        // Heap sort on the copies, which moves the smallest value to the end each round
+        for (int end = size - 1; end > 0; end--) {
+            swap(v, result, 0, end);
+            siftDown(v, result, 0, end);
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (values[parent] <= values[i]) break;
+            swap(values, ids, parent, i);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        siftDown(values, ids, i, size);
+    }
+
+    private static void siftDown(long[] values, int[] ids, int i, int size) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && values[child + 1] < values[child]) child++;
+            if (values[i] <= values[child]) break;
+            swap(values, ids, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(long[] values, int[] ids, int i, int j) {
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+}
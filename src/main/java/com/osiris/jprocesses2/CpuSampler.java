@@ -0,0 +1,206 @@
+package com.osiris.jprocesses2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Measures the CPU usage of all processes, by reading the user and system CPU time
+ * of each process from /proc/[pid]/stat together with a monotonic timestamp. <br>
+ * The CPU usage is the difference between the last two {@link #sample()}s,
+ * thus call it periodically, for example once per second. <br>
+ * Samples reuse the buffers of the sample before, thus apart from the
+ * directory listing and file handles, sampling doesn't allocate. <br>
+ * Only works on Linux, see {@link LinuxProcessSource#isSupported()}. Thread-safe. <br>
+ */
+public class CpuSampler {
+    // Indexes of the /proc/[pid]/stat fields, counted from the first field after the command name.
+    private static final int STAT_UTIME = 11, STAT_STIME = 12;
+    private final ProcFile file = new ProcFile();
+    private Sample current = new Sample(256), previous = new Sample(256);
+
+    /**
+     * Reads the CPU times of all processes and calculates
+     * their CPU usage since the previous sample.
+     */
+    public synchronized void sample() throws IOException {
+        String[] files = LinuxProcessSource.PROC.list();
+        if (files == null) throw new IOException("Failed to list the contents of " + LinuxProcessSource.PROC);
+        Sample sample = previous; // Reuse the buffers of the oldest sample
+        previous = current;
+        current = sample;
+        sample.ensureCapacity(files.length);
+        sample.nanos = System.nanoTime();
+        sample.count = 0;
+        for (String name : files) {
+            int pid = parsePid(name);
+            if (pid < 0 || !file.read(new File(LinuxProcessSource.PROC, name + "/stat"))) continue;
+            int i = file.lastIndexOf((byte) ')');
+            if (i == -1) continue;
+            long utime = -1, stime = -1, startTime = -1;
+            for (int field = 0; field <= LinuxProcessSource.STAT_STARTTIME; field++) {
+                int start = file.skipBlanks(i + 1);
+                i = file.tokenEnd(start);
+                if (field == STAT_UTIME) utime = file.parseLong(start, i);
+                else if (field == STAT_STIME) stime = file.parseLong(start, i);
+                else if (field == LinuxProcessSource.STAT_STARTTIME) startTime = file.parseLong(start, i);
+            }
+            if (utime < 0 || stime < 0) continue;
+            sample.add(pid, utime + stime, startTime);
+        }
+        sample.index();
+        long elapsedNanos = sample.nanos - previous.nanos;
+        for (int i = 0; i < sample.count; i++) {
+            int j = previous.indexOf(sample.pids[i]);
+            if (previous.count == 0 || j == -1 || previous.startTimes[j] != sample.startTimes[i] || elapsedNanos <= 0) {
+                sample.usages[i] = -1;
+            } else {
+                double seconds = (sample.ticks[i] - previous.ticks[j]) / (double) LinuxProcessSource.CLOCK_TICKS;
+                sample.usages[i] = seconds * 100 * 1000000000.0 / elapsedNanos;
+            }
+        }
+    }
+
+    private static int parsePid(String s) {
+        if (s.isEmpty() || s.length() > 9) return -1;
+        int pid = 0;
+        for (int i = 0; i < s.length(); i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            pid = pid * 10 + digit;
+        }
+        return pid;
+    }
+
+    /**
+     * Returns the CPU usage of the process with the provided pid between the last two samples,
+     * in percent of one core (thus can be above 100 for multi-threaded processes),
+     * or -1 if unknown, for example when it started after the previous sample.
+     */
+    public synchronized double getCpuUsage(int pid) {
+        int i = current.indexOf(pid);
+        return i == -1 ? -1 : current.usages[i];
+    }
+
+    /**
+     * See {@link #getCpuUsage(int)}.
+     */
+    public double getCpuUsage(String pid) {
+        int parsed = parsePid(pid);
+        return parsed < 0 ? -1 : getCpuUsage(parsed);
+    }
+
+    /**
+     * Returns the amount of processes in the last sample.
+     */
+    public synchronized int size() {
+        return current.count;
+    }
+
+    /**
+     * Returns the pid of the process at the provided index (0 to {@link #size()} - 1) in the last sample.
+     */
+    public synchronized int getPid(int index) {
+        checkIndex(index);
+        return current.pids[index];
+    }
+
+    /**
+     * Returns the CPU usage of the process at the provided index (0 to {@link #size()} - 1) in the last sample,
+     * see {@link #getCpuUsage(int)}.
+     */
+    public synchronized double getCpuUsageAt(int index) {
+        checkIndex(index);
+        return current.usages[index];
+    }
+
+    /**
+     * Returns the pids of the n processes with the highest CPU usage between the last two samples, highest first.
+     * Processes with unknown usage are skipped. <br>
+     * Selects via a bounded heap instead of sorting all processes. <br>
+     */
+    public synchronized int[] topByCpuUsage(int n) {
+        BoundedHeap heap = new BoundedHeap(n);
+        int[] pids = new int[n];
+        for (int i = 0; i < current.count; i++) {
+            double usage = current.usages[i];
+            if (usage < 0) continue;
+            int slot = heap.offer(Double.doubleToLongBits(usage)); // Same order as the doubles, since not negative
+            if (slot != -1) pids[slot] = current.pids[i];
+        }
+        int[] ids = heap.sortedIds();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pids[ids[i]];
+        }
+        return ids;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= current.count)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + current.count);
+    }
+
+    /**
+     * CPU times of all processes at one point in time, with an open addressing pid index.
+     */
+    private static class Sample {
+        long nanos;
+        int count;
+        int[] pids;
+        long[] ticks;
+        long[] startTimes;
+        double[] usages;
+        /**
+         * Pid to index + 1, 0 marks an empty slot.
+         */
+        int[] slots;
+
+        Sample(int capacity) {
+            pids = new int[capacity];
+            ticks = new long[capacity];
+            startTimes = new long[capacity];
+            usages = new double[capacity];
+            slots = new int[capacity * 2];
+        }
+
+        void ensureCapacity(int capacity) {
+            if (capacity <= pids.length) return;
+            capacity = Integer.highestOneBit(capacity) * 2;
+            pids = new int[capacity];
+            ticks = new long[capacity];
+            startTimes = new long[capacity];
+            usages = new double[capacity];
+            slots = new int[capacity * 2];
+        }
+
+        void add(int pid, long ticks, long startTime) {
+            pids[count] = pid;
+            this.ticks[count] = ticks;
+            startTimes[count] = startTime;
+            count++;
+        }
+
+        private int slot(int pid) {
+            return (pid * 0x9E3779B9 >>> 7) & (slots.length - 1);
+        }
+
+        void index() {
+            Arrays.fill(slots, 0);
+            for (int i = 0; i < count; i++) {
+                int slot = slot(pids[i]);
+                while (slots[slot] != 0) slot = (slot + 1) & (slots.length - 1);
+                slots[slot] = i + 1;
+            }
+        }
+
+        int indexOf(int pid) {
+            int slot = slot(pid);
+            int index;
+            while ((index = slots[slot]) != 0) {
+                if (pids[index - 1] == pid) return index - 1;
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            return -1;
+        }
+    }
+}
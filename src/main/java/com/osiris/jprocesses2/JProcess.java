@@ -15,15 +15,18 @@
  */
 package com.osiris.jprocesses2;
 
+import com.osiris.jprocesses2.util.AsyncExecutor;
+import com.osiris.jprocesses2.util.LibC;
+import com.osiris.jprocesses2.util.Metrics;
 import com.osiris.jprocesses2.util.NativeResult;
 import com.osiris.jprocesses2.util.NativeUtils;
 import com.osiris.jprocesses2.util.OS;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * Holds raw process information,
@@ -65,6 +68,12 @@ public class JProcess {
      * thus it's recommended to use {@link #getTimestampStart()} instead. <br>
      */
     public String timestampStart;
+    /**
+     * The timestamp of when this process was created, in milliseconds since the epoch,
+     * or -1 if the source only provides the raw {@link #timestampStart}. <br>
+     * Set directly from /proc on Linux, which avoids parsing dates. <br>
+     */
+    public long timestampStartMillis = -1;
     /**
      * The priority of this process. <br>
      * Note that this is a raw and system-dependent value, <br>
@@ -99,34 +108,90 @@ public class JProcess {
         this.command = command;
     }
 
+    /**
+     * Asks the process to terminate (SIGTERM on Unix). See {@link #signal(int)}.
+     */
     public NativeResult stop() {
-        NativeUtils nativeUtils = new NativeUtils();
+        return signal(LibC.SIGTERM);
+    }
+
+    /**
+     * Forcefully terminates the process (SIGKILL on Unix). See {@link #signal(int)}.
+     */
+    public NativeResult kill() {
+        return signal(LibC.SIGKILL);
+    }
+
+    /**
+     * Sends the signal to this process. <br>
+     * On Unix this calls kill(2) directly and reports the errno on failure,
+     * if the C library isn't available the kill command is used instead. <br>
+     * On Windows only {@link LibC#SIGTERM} and {@link LibC#SIGKILL} are supported, which use taskkill. <br>
+     *
+     * @param signal signal number, for example {@link LibC#SIGTERM}.
+     */
+    public NativeResult signal(int signal) {
+        NativeResult response = sendSignal(signal);
+        Metrics.increment(response.isSuccess() ? Metrics.Counter.SIGNALS_SENT : Metrics.Counter.SIGNALS_FAILED);
+        return response;
+    }
+
+    private NativeResult sendSignal(int signal) {
         NativeResult response = new NativeResult();
         if (OS.isWindows) {
-            if (nativeUtils.executeCommandAndGetCode("taskkill", "/PID", String.valueOf(pid)) == 0) {
-                response.setSuccess(true);
+            if (signal != LibC.SIGTERM && signal != LibC.SIGKILL) {
+                response.setMessage("Signal " + signal + " is not supported on Windows.");
+                return response;
+            }
+            NativeUtils nativeUtils = new NativeUtils();
+            int code = signal == LibC.SIGKILL ?
+                    nativeUtils.executeCommandAndGetCode("taskkill", "/PID", String.valueOf(pid), "/F")
+                    : nativeUtils.executeCommandAndGetCode("taskkill", "/PID", String.valueOf(pid));
+            if (code == 0) response.setSuccess(true);
+            return response;
+        }
+        int nativePid = parsePid(pid);
+        if (nativePid <= 0) { // 0 and negative values would signal whole process groups
+            response.setMessage("Invalid pid: " + pid);
+            return response;
+        }
+        if (LibC.isAvailable()) {
+            int errno = LibC.kill(nativePid, signal);
+            if (errno == 0) response.setSuccess(true);
+            else {
+                response.setErrno(errno);
+                response.setMessage(LibC.strerror(errno));
             }
         } else {
-            if (nativeUtils.executeCommandAndGetCode("kill", "-15", String.valueOf(pid)) == 0) {
+            NativeUtils nativeUtils = new NativeUtils();
+            if (nativeUtils.executeCommandAndGetCode("kill", "-" + signal, String.valueOf(nativePid)) == 0) {
                 response.setSuccess(true);
             }
         }
         return response;
     }
 
-    public NativeResult kill() {
-        NativeUtils nativeUtils = new NativeUtils();
-        NativeResult response = new NativeResult();
-        if (OS.isWindows) {
-            if (nativeUtils.executeCommandAndGetCode("taskkill", "/PID", String.valueOf(pid), "/F") == 0) {
-                response.setSuccess(true);
-            }
-        } else {
-            if (nativeUtils.executeCommandAndGetCode("kill", "-9", String.valueOf(pid)) == 0) {
-                response.setSuccess(true);
+    /**
+     * Same as {@link #signal(int)}, but runs on the {@link AsyncExecutor}, thus doesn't block the calling thread.
+     */
+    public Future<NativeResult> signalAsync(final int signal) {
+        return AsyncExecutor.get().submit(new Callable<NativeResult>() {
+            @Override
+            public NativeResult call() {
+                return signal(signal);
             }
+        });
+    }
+
+    /**
+     * Returns the pid as int, or -1 if it isn't a valid number.
+     */
+    static int parsePid(String pid) {
+        try {
+            return pid == null ? -1 : Integer.parseInt(pid);
+        } catch (NumberFormatException e) {
+            return -1;
         }
-        return response;
     }
 
     public NativeResult changePriority(JProcessPriority priority) {
@@ -136,7 +201,18 @@ public class JProcess {
             return changePriority(priority.unixPriority);
     }
 
+    /**
+     * Changes the priority of this process. <br>
+     * On Unix the priority is the nice value, set via setpriority(2) directly,
+     * or via the renice command if the C library isn't available. <br>
+     */
     public NativeResult changePriority(int priority) {
+        NativeResult result = setPriority(priority);
+        Metrics.increment(result.isSuccess() ? Metrics.Counter.PRIORITY_CHANGES : Metrics.Counter.PRIORITY_CHANGES_FAILED);
+        return result;
+    }
+
+    private NativeResult setPriority(int priority) {
         if (OS.isWindows) {
             VBScriptHelper vbScriptHelper = new VBScriptHelper();
             NativeResult response = new NativeResult();
@@ -149,8 +225,24 @@ public class JProcess {
             }
             return response;
         } else {
-            NativeUtils nativeUtils = new NativeUtils();
             NativeResult result = new NativeResult();
+            int nativePid = parsePid(pid);
+            if (nativePid <= 0) { // 0 would change the priority of this process
+                result.setMessage("Invalid pid: " + pid);
+                return result;
+            }
+            if (LibC.isAvailable()) {
+                int errno = LibC.setpriority(LibC.PRIO_PROCESS, nativePid, priority);
+                if (errno == 0) {
+                    result.setSuccess(true);
+                    this.priority = "" + priority;
+                } else {
+                    result.setErrno(errno);
+                    result.setMessage(LibC.strerror(errno));
+                }
+                return result;
+            }
+            NativeUtils nativeUtils = new NativeUtils();
             if (nativeUtils.executeCommandAndGetCode("renice", "" + priority,
                     "-p", pid) == 0) {
                 result.setSuccess(true);
@@ -161,60 +253,33 @@ public class JProcess {
     }
 
     /**
-     * Fetches fresh additional process information.
+     * Fetches fresh additional process information. <br>
+     * To fetch it for many processes at once, use {@link ProcessUtils#getExtraInfo(Collection)} instead. <br>
      */
     public JProcessExtra getExtraInfo() throws IOException {
-        if (OS.isWindows) return fetchExtraInfoWindows();
-        else return fetchExtraInfoUnix();
+        return ProcessUtils.getDefaultSource().fetchExtraInfo(Collections.singletonList(pid)).get(pid);
     }
 
-    private JProcessExtra fetchExtraInfoWindows() throws IOException {
-        Process process = new ProcessBuilder().command("wmic", "process", "where", "\"ProcessId=" + pid + "\"",
-                "get", "ThreadCount,PageFaults", "/VALUE").start();
-        String line = "";
-        JProcessExtra extra = new JProcessExtra();
-        int countRead = 1;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("ThreadCount")) {
-                    extra.threadCount = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 2) {
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("PageFaults")) {
-                    extra.minorPageFaults = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 2) {
-                        countRead = 0;
-                    }
-                    countRead++;
-                }
-            }
-        }
-        extra.isAlive = extra.threadCount != null;
+    /**
+     * Same as {@link #getExtraInfo()}, but additionally sets {@link JProcessExtra#cpuUsage}
+     * to the usage measured by the provided sampler between its last two samples.
+     */
+    public JProcessExtra getExtraInfo(CpuSampler sampler) throws IOException {
+        JProcessExtra extra = getExtraInfo();
+        extra.cpuUsage = sampler.getCpuUsage(pid);
         return extra;
     }
 
-    private JProcessExtra fetchExtraInfoUnix() throws IOException {
-        // ps -e -o pid,ruser,vsize,rss,%cpu,lstart,cputime,nice,ucomm,command
-        // The first returned line contains enables us to determine the column widths
-        Process process = new ProcessBuilder().command("ps", "-ww", "-p", pid, "-o", "min_flt,nlwp").start();
-        int lUcomm, lMinflt; // l = length. Length of chars each of that columns takes. Last columns' length (command) doesn't matter.
-        String minflt, nlwp;
-        minflt = "MINFLT";
-        nlwp = "NLWP";
-        String line = "";
-        JProcessExtra extra = new JProcessExtra();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String firstLine = br.readLine(); // Contains the table header and gives us info about the column lengths
-            lMinflt = (firstLine.indexOf(minflt) + minflt.length()); // No -1 bc in .substring() the last index is excluded.
-            while ((line = br.readLine()) != null) {
-                extra.minorPageFaults = line.substring(0, lMinflt).trim();
-                extra.threadCount = line.substring(lMinflt, line.length() - 1).trim();
+    /**
+     * Same as {@link #getExtraInfo()}, but runs on the {@link AsyncExecutor}, thus doesn't block the calling thread.
+     */
+    public Future<JProcessExtra> getExtraInfoAsync() {
+        return AsyncExecutor.get().submit(new Callable<JProcessExtra>() {
+            @Override
+            public JProcessExtra call() throws Exception {
+                return getExtraInfo();
             }
-        }
-        extra.isAlive = extra.threadCount != null;
-        return extra;
+        });
     }
 
     public JProcessPriority getPriority() {
@@ -256,7 +321,11 @@ public class JProcess {
         }
     }
 
+    /**
+     * Returns {@link #timestampStartMillis} as date if available, otherwise parses the raw {@link #timestampStart}.
+     */
     public Date getTimestampStart() throws ParseException {
+        if (timestampStartMillis != -1) return new Date(timestampStartMillis);
         NativeUtils nativeUtils = new NativeUtils();
         if (OS.isWindows)
             return nativeUtils.parseWindowsDateTimeToFullDate(timestampStart);
@@ -8,16 +8,47 @@ public class JProcessExtra {
      * Returns true if the process is currently running.
      */
     public boolean isAlive;
-    //public String cpuUsage; // TODO not available on Windows via wmic command, thus removed. Find performant alternative.
+    /**
+     * The CPU usage of this process in percent of one core, or -1 if unknown. <br>
+     * Only available on Linux, via {@link JProcess#getExtraInfo(CpuSampler)}. <br>
+     */
+    public double cpuUsage = -1;
     /**
      * The amount of threads created by this process.
      */
     public String threadCount;
-    //public String majorPageFaults; // TODO not available on Windows via wmic command, thus removed. Find performant alternative.
     /**
      * The amount of minor page faults for this process.
      */
     public String minorPageFaults;
+    /**
+     * The amount of major page faults (that required loading from disk) for this process, or -1 if unknown. <br>
+     * The following details are only available on Linux. <br>
+     */
+    public long majorPageFaults = -1;
+    /**
+     * The amount of bytes this process caused to be read from storage, or -1 if unknown. <br>
+     * Requires permission to read /proc/[pid]/io, thus usually only available for processes of the same user. <br>
+     */
+    public long readBytes = -1;
+    /**
+     * The amount of bytes this process caused to be written to storage, or -1 if unknown. <br>
+     * Requires permission to read /proc/[pid]/io, thus usually only available for processes of the same user. <br>
+     */
+    public long writeBytes = -1;
+    /**
+     * The amount of times this process gave up the CPU voluntarily, for example while waiting for I/O, or -1 if unknown.
+     */
+    public long voluntaryContextSwitches = -1;
+    /**
+     * The amount of times this process was forced to give up the CPU, or -1 if unknown.
+     */
+    public long involuntaryContextSwitches = -1;
+    /**
+     * The amount of currently open file descriptors, or -1 if unknown. <br>
+     * Requires permission to list /proc/[pid]/fd, thus usually only available for processes of the same user. <br>
+     */
+    public long openFileDescriptors = -1;
 
     public JProcessExtra() {
     }
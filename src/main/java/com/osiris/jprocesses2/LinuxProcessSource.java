@@ -0,0 +1,327 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.LibC;
+import com.osiris.jprocesses2.util.Metrics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Fetches the processes by reading the /proc filesystem directly, thus without starting a new process. <br>
+ * Reads /proc/[pid]/stat, /proc/[pid]/status and /proc/[pid]/cmdline of each process. <br>
+ * Only works on Linux, see {@link #isSupported()}. <br>
+ */
+public class LinuxProcessSource implements ProcessSource {
+    public static final File PROC = new File("/proc");
+    static final long CLOCK_TICKS = LibC.sysconf(LibC.SC_CLK_TCK, 100);
+    static final long PAGE_SIZE = LibC.sysconf(LibC.SC_PAGESIZE, 4096);
+    // Indexes of the /proc/[pid]/stat fields, counted from the first field after the command name.
+    static final int STAT_PPID = 1, STAT_MINFLT = 7, STAT_MAJFLT = 9, STAT_NICE = 16, STAT_NUM_THREADS = 17, STAT_STARTTIME = 19,
+            STAT_VSIZE = 20, STAT_RSS = 21;
+    private static final File PASSWD = new File("/etc/passwd");
+    private static long bootTimeMillis = -1;
+    private static Map<String, String> users;
+    private static long usersLastModified;
+
+    /**
+     * Returns true if the /proc filesystem is available and readable.
+     */
+    public static boolean isSupported() {
+        return new File(PROC, "self/stat").canRead();
+    }
+
+    @Override
+    public List<JProcess> fetchAll() throws IOException {
+        ProcessCollector collector = new ProcessCollector(256);
+        visit(ProcessField.all(), collector);
+        return collector.list;
+    }
+
+    /**
+     * Only reads the files of /proc/[pid]/ containing the requested details. <br>
+     * The directory is read lazily, thus memory usage stays the same regardless of the process count. <br>
+     */
+    @Override
+    public void visit(Set<ProcessField> fields, ProcessVisitor visitor) throws IOException {
+        long start = Metrics.start();
+        Reader reader = new Reader(fields);
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(PROC.toPath())) {
+            for (Path path : dir) {
+                String pid = path.getFileName().toString();
+                if (!ProcessUtils.isPID(pid)) continue;
+                JProcess p = reader.read(pid);
+                if (p == null) continue; // Exited in the meantime
+                if (!visitor.visit(p)) break;
+            }
+        }
+        if (start != 0) {
+            Metrics.record(Metrics.Histogram.FETCH_READ_NANOS, reader.readNanos);
+            Metrics.record(Metrics.Histogram.FETCH_PARSE_NANOS, System.nanoTime() - start - reader.readNanos);
+        }
+    }
+
+    @Override
+    public JProcess fetch(String pid) throws IOException {
+        if (!ProcessUtils.isPID(pid)) return null;
+        return new Reader(ProcessField.all()).read(pid);
+    }
+
+    @Override
+    public Map<String, JProcess> fetch(Collection<String> pids) throws IOException {
+        Reader reader = new Reader(ProcessField.all());
+        Map<String, JProcess> map = new LinkedHashMap<>(pids.size() * 4 / 3 + 1);
+        for (String pid : pids) {
+            if (!ProcessUtils.isPID(pid)) continue;
+            JProcess p = reader.read(pid);
+            if (p != null) map.put(pid, p);
+        }
+        return map;
+    }
+
+    /**
+     * Only reads /proc/[pid]/stat of each process. Zombies are not alive.
+     */
+    @Override
+    public Map<String, JProcessExtra> fetchExtraInfo(Collection<String> pids) throws IOException {
+        Reader reader = new Reader(EnumSet.noneOf(ProcessField.class));
+        Map<String, JProcessExtra> map = new LinkedHashMap<>(pids.size() * 4 / 3 + 1);
+        for (String pid : pids) {
+            JProcessExtra extra = ProcessUtils.isPID(pid) ? reader.readExtra(pid) : null;
+            map.put(pid, extra != null ? extra : new JProcessExtra());
+        }
+        return map;
+    }
+
+    /**
+     * Returns the system boot time in milliseconds since the epoch, read from the btime line in /proc/stat.
+     */
+    static synchronized long getBootTimeMillis() throws IOException {
+        if (bootTimeMillis == -1) {
+            try (BufferedReader br = new BufferedReader(new FileReader(new File(PROC, "stat")))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.startsWith("btime ")) {
+                        bootTimeMillis = Long.parseLong(line.substring(6).trim()) * 1000;
+                        break;
+                    }
+                }
+            }
+            if (bootTimeMillis == -1) throw new IOException("Failed to find btime in " + PROC + "/stat");
+        }
+        return bootTimeMillis;
+    }
+
+    /**
+     * Returns the user ids mapped to their names, read from /etc/passwd. <br>
+     * The map is cached and only re-read if the file was modified. <br>
+     */
+    static synchronized Map<String, String> getUsers() {
+        long lastModified = PASSWD.lastModified();
+        if (users == null || lastModified != usersLastModified) {
+            Map<String, String> map = new HashMap<>();
+            try (BufferedReader br = new BufferedReader(new FileReader(PASSWD))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] parts = line.split(":");
+                    if (parts.length > 2) map.put(parts[2], parts[0]);
+                }
+            } catch (IOException ignored) {
+                // Usernames will be the raw user ids
+            }
+            users = map;
+            usersLastModified = lastModified;
+        }
+        return users;
+    }
+
+    /**
+     * Reads single processes from /proc while reusing its buffers,
+     * thus not thread-safe.
+     */
+    static class Reader {
+        final ProcFile file = new ProcFile();
+        final int[] starts = new int[STAT_RSS + 1];
+        final int[] ends = new int[STAT_RSS + 1];
+        final boolean readStat, readStatus, readCmdline;
+        final Set<ProcessField> fields;
+        final Map<String, String> users;
+        final DateFormat startFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss yyyy", Locale.ENGLISH);
+        final long bootTime;
+        /**
+         * Time spent reading files, only measured if {@link Metrics#enabled}.
+         */
+        long readNanos;
+
+        Reader(Set<ProcessField> fields) throws IOException {
+            this.fields = fields.isEmpty() ? EnumSet.noneOf(ProcessField.class) : EnumSet.copyOf(fields);
+            readStatus = fields.contains(ProcessField.USERNAME);
+            readCmdline = fields.contains(ProcessField.COMMAND);
+            readStat = readCmdline || fields.contains(ProcessField.PARENT_PID) || fields.contains(ProcessField.NAME)
+                    || fields.contains(ProcessField.MEMORY) || fields.contains(ProcessField.VIRTUAL_MEMORY)
+                    || fields.contains(ProcessField.TIMESTAMP_START) || fields.contains(ProcessField.PRIORITY);
+            users = readStatus ? getUsers() : null;
+            bootTime = fields.contains(ProcessField.TIMESTAMP_START) ? getBootTimeMillis() : 0;
+        }
+
+        boolean readFile(File f) {
+            long start = Metrics.start();
+            boolean read = file.read(f);
+            if (start != 0) readNanos += System.nanoTime() - start;
+            return read;
+        }
+
+        /**
+         * Returns the process with the provided id, or null if it doesn't exist.
+         */
+        JProcess read(String pid) {
+            File dir = new File(PROC, pid);
+            JProcess p = new JProcess();
+            p.pid = pid;
+            if (readStat) {
+                if (!readStat(dir, p)) return null;
+            } else if (!dir.exists()) return null;
+            if (readStatus && !readStatus(dir, p)) return null;
+            if (readCmdline && !readCmdline(dir, p)) return null;
+            if (readCmdline && !fields.contains(ProcessField.NAME)) p.name = null; // Only read for the command fallback
+            return p;
+        }
+
+        /**
+         * Splits the fields after the command name of /proc/[pid]/stat into {@link #starts} and {@link #ends}. <br>
+         * Returns the index of the closing bracket of the command name, or -1 if the file couldn't be read. <br>
+         */
+        int splitStat(File dir) {
+            if (!readFile(new File(dir, "stat"))) return -1;
+            int close = file.lastIndexOf((byte) ')'); // Name may contain spaces and brackets
+            if (close == -1) return -1;
+            int i = close + 1;
+            for (int field = 0; field < starts.length; field++) {
+                i = file.skipBlanks(i);
+                starts[field] = i;
+                i = file.tokenEnd(i);
+                ends[field] = i;
+            }
+            return close;
+        }
+
+        /**
+         * Returns true if the process exists and isn't a zombie. <br>
+         * Requires {@link ProcessField#TIMESTAMP_START} and returns false if the provided start time
+         * isn't -1 and differs, thus if the pid got reused by another process. <br>
+         */
+        boolean isAlive(String pid, long startMillis) {
+            if (splitStat(new File(PROC, pid)) == -1) return false;
+            byte state = file.buffer[starts[0]];
+            if (state == 'Z' || state == 'X' || state == 'x') return false;
+            return startMillis == -1 || startMillis == bootTime + statLong(STAT_STARTTIME) * 1000 / CLOCK_TICKS;
+        }
+
+        /**
+         * Returns the extra information of the process with the provided id, or null if it doesn't exist.
+         */
+        JProcessExtra readExtra(String pid) {
+            if (splitStat(new File(PROC, pid)) == -1) return null;
+            JProcessExtra extra = new JProcessExtra();
+            byte state = file.buffer[starts[0]];
+            extra.isAlive = state != 'Z' && state != 'X' && state != 'x';
+            extra.minorPageFaults = file.toString(starts[STAT_MINFLT], ends[STAT_MINFLT]);
+            extra.majorPageFaults = statLong(STAT_MAJFLT);
+            extra.threadCount = file.toString(starts[STAT_NUM_THREADS], ends[STAT_NUM_THREADS]);
+            File dir = new File(PROC, pid);
+            if (readFile(new File(dir, "status"))) {
+                extra.voluntaryContextSwitches = valueOf("\nvoluntary_ctxt_switches:");
+                extra.involuntaryContextSwitches = valueOf("\nnonvoluntary_ctxt_switches:");
+            }
+            if (readFile(new File(dir, "io"))) {
+                extra.readBytes = valueOf("\nread_bytes:");
+                extra.writeBytes = valueOf("\nwrite_bytes:");
+            }
+            extra.openFileDescriptors = countFileDescriptors(dir);
+            return extra;
+        }
+
+        /**
+         * Returns the number following the key in the current file, or -1 if not found.
+         */
+        long valueOf(String key) {
+            int i = file.indexAfter(key);
+            if (i == -1) return -1;
+            i = file.skipBlanks(i);
+            return file.parseLong(i, file.tokenEnd(i));
+        }
+
+        /**
+         * Returns the amount of entries in /proc/[pid]/fd, or -1 if it can't be listed.
+         */
+        long countFileDescriptors(File dir) {
+            long count = 0;
+            try (DirectoryStream<Path> fds = Files.newDirectoryStream(new File(dir, "fd").toPath())) {
+                for (Path ignored : fds) {
+                    count++;
+                }
+            } catch (IOException | SecurityException e) {
+                return -1;
+            }
+            return count;
+        }
+
+        long statLong(int field) {
+            return file.parseLong(starts[field], ends[field]);
+        }
+
+        boolean readStat(File dir, JProcess p) {
+            int close = splitStat(dir);
+            if (close == -1) return false;
+            if (readCmdline || fields.contains(ProcessField.NAME))
+                p.name = file.toString(file.indexOf((byte) '(', 0) + 1, close);
+            if (fields.contains(ProcessField.PARENT_PID))
+                p.parentPid = file.toString(starts[STAT_PPID], ends[STAT_PPID]);
+            if (fields.contains(ProcessField.PRIORITY))
+                p.priority = file.toString(starts[STAT_NICE], ends[STAT_NICE]);
+            if (fields.contains(ProcessField.VIRTUAL_MEMORY))
+                p.usedVirtualMemoryInKB = String.valueOf(statLong(STAT_VSIZE) / 1024);
+            if (fields.contains(ProcessField.MEMORY))
+                p.usedMemoryInKB = String.valueOf(statLong(STAT_RSS) * PAGE_SIZE / 1024);
+            if (fields.contains(ProcessField.TIMESTAMP_START)) {
+                long startMillis = bootTime + statLong(STAT_STARTTIME) * 1000 / CLOCK_TICKS;
+                p.timestampStartMillis = startMillis;
+                p.timestampStart = startFormat.format(new Date(startMillis));
+            }
+            return true;
+        }
+
+        boolean readStatus(File dir, JProcess p) {
+            if (!readFile(new File(dir, "status"))) return false;
+            int i = file.indexAfter("\nUid:");
+            if (i == -1) return false;
+            i = file.skipBlanks(i);
+            String uid = file.toString(i, file.tokenEnd(i)); // Real user id comes first
+            String username = users.get(uid);
+            p.username = username != null ? username : uid;
+            return true;
+        }
+
+        boolean readCmdline(File dir, JProcess p) {
+            if (!readFile(new File(dir, "cmdline"))) return false;
+            int end = file.length;
+            while (end > 0 && (file.buffer[end - 1] == 0 || file.buffer[end - 1] == ' ')) end--;
+            if (end == 0) {
+                p.command = "[" + p.name + "]"; // Kernel threads and zombies, same as ps
+                return true;
+            }
+            for (int i = 0; i < end; i++) {
+                if (file.buffer[i] == 0) file.buffer[i] = ' ';
+            }
+            p.command = file.toString(0, end);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.osiris.jprocesses2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Reusable buffer for reading small files from the /proc filesystem. <br>
+ * Not thread-safe, thus create one per thread/fetch. <br>
+ */
+class ProcFile {
+    private static final Charset CHARSET = Charset.defaultCharset();
+    byte[] buffer = new byte[4096];
+    int length;
+
+    /**
+     * Reads the whole file into {@link #buffer}. <br>
+     * Returns false if the file doesn't exist or couldn't be read,
+     * which normally means that the process exited in the meantime. <br>
+     */
+    boolean read(File file) {
+        length = 0;
+        try (FileInputStream in = new FileInputStream(file)) {
+            int count;
+            while ((count = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += count;
+                if (length == buffer.length) {
+                    byte[] bigger = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, bigger, 0, length);
+                    buffer = bigger;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            length = 0;
+            return false;
+        }
+    }
+
+    int indexOf(byte b, int from) {
+        for (int i = from; i < length; i++) {
+            if (buffer[i] == b) return i;
+        }
+        return -1;
+    }
+
+    int lastIndexOf(byte b) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == b) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first byte after the provided key, or -1 if the key wasn't found.
+     */
+    int indexAfter(String key) {
+        int keyLength = key.length();
+        outer:
+        for (int i = 0; i <= length - keyLength; i++) {
+            for (int j = 0; j < keyLength; j++) {
+                if (buffer[i + j] != key.charAt(j)) continue outer;
+            }
+            return i + keyLength;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first byte that is not a space or tab, starting at the provided index.
+     */
+    int skipBlanks(int from) {
+        while (from < length && (buffer[from] == ' ' || buffer[from] == '\t')) from++;
+        return from;
+    }
+
+    /**
+     * Returns the index of the first space, tab or newline, starting at the provided index, or {@link #length}.
+     */
+    int tokenEnd(int from) {
+        while (from < length && buffer[from] != ' ' && buffer[from] != '\t' && buffer[from] != '\n') from++;
+        return from;
+    }
+
+    /**
+     * Parses the decimal number between the provided indexes (end excluded), or returns -1 if there is none.
+     */
+    long parseLong(int from, int to) {
+        if (from >= to) return -1;
+        boolean negative = buffer[from] == '-';
+        if (negative) from++;
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    String toString(int from, int to) {
+        return new String(buffer, from, to - from, CHARSET);
+    }
+}
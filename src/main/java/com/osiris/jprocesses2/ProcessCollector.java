@@ -0,0 +1,21 @@
+package com.osiris.jprocesses2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects all visited processes into a list.
+ */
+class ProcessCollector implements ProcessVisitor {
+    final List<JProcess> list;
+
+    ProcessCollector(int initialCapacity) {
+        list = new ArrayList<>(initialCapacity);
+    }
+
+    @Override
+    public boolean visit(JProcess process) {
+        list.add(process);
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+package com.osiris.jprocesses2;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The details of a {@link JProcess} that can be fetched. <br>
+ * Used to only fetch the needed details, see {@link ProcessUtils#visitProcesses(Set, ProcessVisitor)}. <br>
+ */
+public enum ProcessField {
+    /**
+     * See {@link JProcess#pid}. Always fetched, even if not requested.
+     */
+    PID,
+    /**
+     * See {@link JProcess#parentPid}.
+     */
+    PARENT_PID,
+    /**
+     * See {@link JProcess#name}.
+     */
+    NAME,
+    /**
+     * See {@link JProcess#caption}. Only available on Windows.
+     */
+    CAPTION,
+    /**
+     * See {@link JProcess#username}.
+     */
+    USERNAME,
+    /**
+     * See {@link JProcess#usedMemoryInKB}.
+     */
+    MEMORY,
+    /**
+     * See {@link JProcess#usedVirtualMemoryInKB}.
+     */
+    VIRTUAL_MEMORY,
+    /**
+     * See {@link JProcess#timestampStart} and {@link JProcess#timestampStartMillis}.
+     */
+    TIMESTAMP_START,
+    /**
+     * See {@link JProcess#priority}.
+     */
+    PRIORITY,
+    /**
+     * See {@link JProcess#command}.
+     */
+    COMMAND;
+
+    /**
+     * Returns a new set containing all fields.
+     */
+    public static Set<ProcessField> all() {
+        return EnumSet.allOf(ProcessField.class);
+    }
+
+    /**
+     * Sets the provided raw value as this detail of the provided process.
+     */
+    public void set(JProcess p, String value) {
+        switch (this) {
+            case PID:
+                p.pid = value;
+                break;
+            case PARENT_PID:
+                p.parentPid = value;
+                break;
+            case NAME:
+                p.name = value;
+                break;
+            case CAPTION:
+                p.caption = value;
+                break;
+            case USERNAME:
+                p.username = value;
+                break;
+            case MEMORY:
+                p.usedMemoryInKB = value;
+                break;
+            case VIRTUAL_MEMORY:
+                p.usedVirtualMemoryInKB = value;
+                break;
+            case TIMESTAMP_START:
+                p.timestampStart = value;
+                break;
+            case PRIORITY:
+                p.priority = value;
+                break;
+            case COMMAND:
+                p.command = value;
+                break;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.osiris.jprocesses2;
+
+import java.util.*;
+
+/**
+ * Keeps the memory and CPU usage history of all processes, for example of the last hour,
+ * fed from successive {@link ProcessTable}s via {@link #record(ProcessTable, CpuSampler)}. <br>
+ * Each tracked process has fixed-size ring buffers of primitive samples, thus its memory usage is bounded
+ * (about 12 bytes per sample) and the oldest samples get overwritten once the capacity is reached.
+ * The sample timestamps are shared by all processes. <br>
+ * Processes are identified by their pid and start time, thus a reused pid starts a new history.
+ * Processes missing from a recorded table have exited and their history is removed. <br>
+ * Missing values are -1. Thread-safe. <br>
+ */
+public class ProcessHistory {
+    /**
+     * The maximum amount of samples kept per process.
+     */
+    public final int capacity;
+    private final long[] timestamps;
+    /**
+     * Total amount of recorded samples, the newest one is at index (samples - 1) % capacity.
+     */
+    private long samples;
+    private Map<Integer, Series> series = new HashMap<>();
+
+    /**
+     * @param capacity the maximum amount of samples kept per process, for example 360 to keep
+     *                 one hour when recording every 10 seconds.
+     */
+    public ProcessHistory(int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("Capacity must be at least 2, but was " + capacity);
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+    }
+
+    /**
+     * Same as {@link #record(ProcessTable, CpuSampler)}, without CPU usage.
+     */
+    public void record(ProcessTable table) {
+        record(table, null);
+    }
+
+    /**
+     * Adds a sample containing the memory usage of each process in the table, taken at {@link ProcessTable#timestamp},
+     * and its CPU usage between the last two samples of the provided sampler, if not null. <br>
+     * Call {@link CpuSampler#sample()} right before, so that both describe the same moment. <br>
+     */
+    public synchronized void record(ProcessTable table, CpuSampler sampler) {
+        int slot = (int) (samples % capacity);
+        timestamps[slot] = table.timestamp;
+        Map<Integer, Series> next = new HashMap<>(table.size() * 4 / 3 + 1);
+        for (int i = 0; i < table.size(); i++) {
+            int pid = table.getPid(i);
+            if (pid < 0 || next.containsKey(pid)) continue;
+            long startTime = table.getStartTime(i);
+            Series s = series.get(pid);
+            if (s == null || s.startTime != startTime) s = new Series(startTime, samples, capacity);
+            s.memoryInKB[slot] = table.getMemoryInKB(i);
+            s.cpuUsage[slot] = sampler == null ? -1 : (float) sampler.getCpuUsage(pid);
+            next.put(pid, s);
+        }
+        series = next;
+        samples++;
+    }
+
+    /**
+     * Returns the amount of tracked processes.
+     */
+    public synchronized int size() {
+        return series.size();
+    }
+
+    /**
+     * Returns the amount of samples recorded so far, including the overwritten ones.
+     */
+    public synchronized long getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * Returns the pids of all tracked processes.
+     */
+    public synchronized int[] getPids() {
+        int[] pids = new int[series.size()];
+        int i = 0;
+        for (Integer pid : series.keySet()) {
+            pids[i++] = pid;
+        }
+        return pids;
+    }
+
+    /**
+     * Returns the timestamps of the samples of the process, oldest first,
+     * or an empty array if it isn't tracked.
+     */
+    public synchronized long[] getTimestamps(int pid) {
+        Series s = series.get(pid);
+        if (s == null) return new long[0];
+        long first = first(s);
+        long[] values = new long[(int) (samples - first)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = timestamps[(int) ((first + i) % capacity)];
+        }
+        return values;
+    }
+
+    /**
+     * Returns the memory usage in kilobytes of the process, in the same order as {@link #getTimestamps(int)}.
+     */
+    public synchronized long[] getMemoryInKB(int pid) {
+        Series s = series.get(pid);
+        if (s == null) return new long[0];
+        long first = first(s);
+        long[] values = new long[(int) (samples - first)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = s.memoryInKB[(int) ((first + i) % capacity)];
+        }
+        return values;
+    }
+
+    /**
+     * Returns the CPU usage of the process in percent of one core, in the same order as {@link #getTimestamps(int)},
+     * see {@link CpuSampler#getCpuUsage(int)}.
+     */
+    public synchronized double[] getCpuUsage(int pid) {
+        Series s = series.get(pid);
+        if (s == null) return new double[0];
+        long first = first(s);
+        double[] values = new double[(int) (samples - first)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = s.cpuUsage[(int) ((first + i) % capacity)];
+        }
+        return values;
+    }
+
+    /**
+     * Returns by how many kilobytes the memory usage of the process grew within the provided time window
+     * before the newest sample, which is the difference between the newest and the oldest known value in that window
+     * (negative if it shrank), or {@link Long#MIN_VALUE} if there are fewer than two known values.
+     */
+    public synchronized long getMemoryGrowth(int pid, long windowMillis) {
+        Series s = series.get(pid);
+        return s == null ? Long.MIN_VALUE : memoryGrowth(s, windowMillis);
+    }
+
+    /**
+     * Returns the pids of at most n processes whose memory usage grew the most within the provided time window,
+     * fastest first, see {@link #getMemoryGrowth(int, long)}. Processes whose memory didn't grow are not included. <br>
+     * For example <code>getFastestMemoryGrowth(TimeUnit.MINUTES.toMillis(5), 10)</code>. <br>
+     */
+    public synchronized int[] getFastestMemoryGrowth(long windowMillis, int n) {
+        BoundedHeap heap = new BoundedHeap(n);
+        int[] pids = new int[n];
+        for (Map.Entry<Integer, Series> entry : series.entrySet()) {
+            long growth = memoryGrowth(entry.getValue(), windowMillis);
+            if (growth <= 0) continue;
+            int slot = heap.offer(growth);
+            if (slot != -1) pids[slot] = entry.getKey();
+        }
+        int[] ids = heap.sortedIds();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pids[ids[i]];
+        }
+        return ids;
+    }
+
+    /**
+     * Removes all samples and tracked processes.
+     */
+    public synchronized void clear() {
+        series = new HashMap<>();
+        samples = 0;
+    }
+
+    private long memoryGrowth(Series s, long windowMillis) {
+        if (samples == 0) return Long.MIN_VALUE;
+        long newest = samples - 1;
+        long minTimestamp = timestamps[(int) (newest % capacity)] - windowMillis;
+        long first = first(s);
+        long newestValue = -1, oldestValue = -1;
+        for (long i = newest; i >= first; i--) {
+            int slot = (int) (i % capacity);
+            if (timestamps[slot] < minTimestamp) break;
+            long value = s.memoryInKB[slot];
+            if (value == -1) continue;
+            if (newestValue == -1) newestValue = value;
+            else oldestValue = value;
+        }
+        return oldestValue == -1 ? Long.MIN_VALUE : newestValue - oldestValue;
+    }
+
+    /**
+     * Returns the index of the oldest sample of the process that wasn't overwritten yet.
+     */
+    private long first(Series s) {
+        return Math.max(s.firstSample, samples - capacity);
+    }
+
+    /**
+     * Ring buffers of one process, indexed like {@link #timestamps}.
+     */
+    private static class Series {
+        final long startTime;
+        final long firstSample;
+        final long[] memoryInKB;
+        final float[] cpuUsage;
+
+        Series(long startTime, long firstSample, int capacity) {
+            this.startTime = startTime;
+            this.firstSample = firstSample;
+            memoryInKB = new long[capacity];
+            cpuUsage = new float[capacity];
+        }
+    }
+}
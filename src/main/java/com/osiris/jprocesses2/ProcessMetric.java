@@ -0,0 +1,72 @@
+package com.osiris.jprocesses2;
+
+/**
+ * Numeric detail of a process to rank processes by, see {@link ProcessSnapshot#topBy(ProcessMetric, int)}. <br>
+ * For the CPU usage see {@link CpuSampler#topByCpuUsage(int)}. <br>
+ */
+public enum ProcessMetric {
+    /**
+     * See {@link JProcess#usedMemoryInKB}.
+     */
+    MEMORY(ProcessField.MEMORY),
+    /**
+     * See {@link JProcess#usedVirtualMemoryInKB}.
+     */
+    VIRTUAL_MEMORY(ProcessField.VIRTUAL_MEMORY);
+
+    /**
+     * The detail that must be fetched to get this metric.
+     */
+    public final ProcessField field;
+
+    ProcessMetric(ProcessField field) {
+        this.field = field;
+    }
+
+    /**
+     * Returns the value of this metric for the provided process, or -1 if it's missing or not a number. <br>
+     * Parses the raw string without creating objects. <br>
+     */
+    public long getValue(JProcess p) {
+        switch (this) {
+            case MEMORY:
+                return parse(p.usedMemoryInKB);
+            case VIRTUAL_MEMORY:
+                return parse(p.usedVirtualMemoryInKB);
+            default:
+                throw new AssertionError(this);
+        }
+    }
+
+    /**
+     * Returns the value of this metric for the provided row of the table, or -1 if it's missing.
+     */
+    public long getValue(ProcessTable table, int index) {
+        switch (this) {
+            case MEMORY:
+                return table.getMemoryInKB(index);
+            case VIRTUAL_MEMORY:
+                return table.getVirtualMemoryInKB(index);
+            default:
+                throw new AssertionError(this);
+        }
+    }
+
+    /**
+     * Parses a non-negative decimal number surrounded by optional whitespace, returns -1 if that fails.
+     */
+    static long parse(String s) {
+        if (s == null) return -1;
+        int start = 0, end = s.length();
+        while (start < end && s.charAt(start) <= ' ') start++;
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+        if (start == end || end - start > 18) return -1; // Longer numbers could overflow
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
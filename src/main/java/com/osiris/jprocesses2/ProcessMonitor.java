@@ -0,0 +1,112 @@
+package com.osiris.jprocesses2;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches a {@link ProcessSnapshot} periodically in the background
+ * and notifies its listeners about the started, exited and changed processes since the last one. <br>
+ * The first fetch only sets the baseline, listeners are notified from the second fetch on,
+ * and only if something changed. <br>
+ */
+public class ProcessMonitor {
+    public final ProcessUtils processUtils;
+    public final long intervalMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ProcessSnapshot lastSnapshot;
+    private ScheduledExecutorService executor;
+
+    public ProcessMonitor(long intervalMillis) {
+        this(new ProcessUtils(), intervalMillis);
+    }
+
+    public ProcessMonitor(ProcessUtils processUtils, long intervalMillis) {
+        if (intervalMillis <= 0) throw new IllegalArgumentException("Interval must be positive, but was " + intervalMillis);
+        this.processUtils = processUtils;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts fetching in the background, does nothing if already started.
+     */
+    public synchronized void start() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "jProcesses2-monitor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops fetching, does nothing if not started. Can be started again later.
+     */
+    public synchronized void stop() {
+        if (executor == null) return;
+        executor.shutdownNow();
+        executor = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Returns the most recently fetched snapshot, or null if there is none yet.
+     */
+    public ProcessSnapshot getLastSnapshot() {
+        return lastSnapshot;
+    }
+
+    /**
+     * Fetches a new snapshot and notifies the listeners about the differences to the last one. <br>
+     * Called periodically after {@link #start()}, but can also be called manually. <br>
+     */
+    public synchronized void tick() {
+        ProcessSnapshot snapshot;
+        try {
+            snapshot = processUtils.getSnapshot();
+        } catch (Exception e) {
+            Logger.getLogger(ProcessMonitor.class.getName()).log(Level.SEVERE, "Error fetching processes", e);
+            return;
+        }
+        ProcessSnapshot previous = lastSnapshot;
+        lastSnapshot = snapshot;
+        if (previous == null) return;
+        ProcessSnapshotDiff diff = snapshot.diff(previous);
+        if (diff.isEmpty()) return;
+        for (Listener listener : listeners) {
+            try {
+                listener.onChange(diff);
+            } catch (Exception e) {
+                Logger.getLogger(ProcessMonitor.class.getName()).log(Level.SEVERE, "Error in listener", e);
+            }
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Called from the monitor thread with the differences between the last two snapshots.
+         */
+        void onChange(ProcessSnapshotDiff diff);
+    }
+}
@@ -0,0 +1,133 @@
+package com.osiris.jprocesses2;
+
+import java.util.*;
+
+/**
+ * Immutable list of processes fetched at once, indexed by pid, name, username and parent pid. <br>
+ * Lookups via the getBy... methods run in constant time and don't fetch the processes again. <br>
+ * Note that the {@link JProcess} objects themselves are still mutable and shared,
+ * thus should be treated as read-only. <br>
+ */
+public class ProcessSnapshot {
+    /**
+     * The time this snapshot was created, in milliseconds since the epoch.
+     */
+    public final long timestamp;
+    private final List<JProcess> processes;
+    private final Map<String, JProcess> byPid;
+    private final Map<String, List<JProcess>> byName;
+    private final Map<String, List<JProcess>> byUsername;
+    private final Map<String, List<JProcess>> byParentPid;
+
+    public ProcessSnapshot(List<JProcess> processes) {
+        this(processes, System.currentTimeMillis());
+    }
+
+    public ProcessSnapshot(List<JProcess> processes, long timestamp) {
+        this.timestamp = timestamp;
+        this.processes = Collections.unmodifiableList(new ArrayList<>(processes));
+        int capacity = processes.size() * 4 / 3 + 1;
+        byPid = new HashMap<>(capacity);
+        byName = new HashMap<>(capacity);
+        byUsername = new HashMap<>();
+        byParentPid = new HashMap<>(capacity);
+        for (JProcess p : this.processes) {
+            if (p.pid != null && !byPid.containsKey(p.pid)) byPid.put(p.pid, p); // Keep first, real processes come before synthetic parents
+            addTo(byName, p.name, p);
+            addTo(byUsername, p.username, p);
+            addTo(byParentPid, p.parentPid, p);
+        }
+    }
+
+    private static void addTo(Map<String, List<JProcess>> index, String key, JProcess p) {
+        if (key == null) return;
+        List<JProcess> list = index.get(key);
+        if (list == null) {
+            list = new ArrayList<>(1);
+            index.put(key, list);
+        }
+        list.add(p);
+    }
+
+    private static List<JProcess> get(Map<String, List<JProcess>> index, String key) {
+        List<JProcess> list = index.get(key);
+        return list != null ? Collections.unmodifiableList(list) : Collections.<JProcess>emptyList();
+    }
+
+    /**
+     * Returns all processes of this snapshot, as unmodifiable list.
+     */
+    public List<JProcess> getProcesses() {
+        return processes;
+    }
+
+    public int size() {
+        return processes.size();
+    }
+
+    /**
+     * Returns the process with the provided pid, or null if there is none.
+     */
+    public JProcess getByPID(String pid) {
+        return byPid.get(pid);
+    }
+
+    /**
+     * Returns the first process with the provided name, or null if there is none.
+     */
+    public JProcess getByName(String name) {
+        List<JProcess> list = byName.get(name);
+        return list != null ? list.get(0) : null;
+    }
+
+    /**
+     * Returns all processes with the provided name.
+     */
+    public List<JProcess> getAllByName(String name) {
+        return get(byName, name);
+    }
+
+    /**
+     * Returns the first process with the provided command, or null if there is none. <br>
+     * Note that commands are not indexed, thus this scans all processes. <br>
+     */
+    public JProcess getByCommand(String command) {
+        for (JProcess p : processes) {
+            if (Objects.equals(p.command, command)) return p;
+        }
+        return null;
+    }
+
+    /**
+     * Returns all processes run by the provided user.
+     */
+    public List<JProcess> getForUser(String username) {
+        return get(byUsername, username);
+    }
+
+    /**
+     * Returns all processes whose parent has the provided pid.
+     */
+    public List<JProcess> getByParentPID(String parentPid) {
+        return get(byParentPid, parentPid);
+    }
+
+    /**
+     * Returns the n processes with the largest value of the provided metric, largest first. <br>
+     * Selects via a bounded heap instead of sorting all processes, see {@link TopN}. <br>
+     */
+    public List<JProcess> topBy(ProcessMetric metric, int n) {
+        TopN topN = new TopN(metric, n);
+        for (JProcess p : processes) {
+            topN.visit(p);
+        }
+        return topN.getResult();
+    }
+
+    /**
+     * Returns the processes that started, exited or changed since the provided, older snapshot.
+     */
+    public ProcessSnapshotDiff diff(ProcessSnapshot previous) {
+        return new ProcessSnapshotDiff(previous, this);
+    }
+}
@@ -0,0 +1,108 @@
+package com.osiris.jprocesses2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shares one {@link ProcessSnapshot} between all callers, as long as it isn't older than
+ * the maximum staleness each caller accepts. <br>
+ * Callers that need a newer snapshot while another one is being fetched wait for that fetch,
+ * instead of starting their own, thus at most one fetch runs at a time. <br>
+ * Reading a fresh enough snapshot doesn't lock. Thread-safe. <br>
+ * See {@link ProcessUtils#getSnapshot(long)} for the cache shared by default. <br>
+ */
+public class ProcessSnapshotCache {
+    public final ProcessUtils processUtils;
+    private volatile Entry entry;
+    private final AtomicReference<FutureTask<Entry>> fetch = new AtomicReference<>();
+
+    public ProcessSnapshotCache(ProcessUtils processUtils) {
+        this.processUtils = processUtils;
+    }
+
+    /**
+     * Returns the cached snapshot if it isn't older than the provided staleness, otherwise fetches a new one,
+     * or waits for the fetch already in progress.
+     *
+     * @param maxStalenessMillis maximum age of the returned snapshot in milliseconds, 0 to always fetch
+     *                           (still shared with callers waiting for the same fetch).
+     */
+    public ProcessSnapshot get(long maxStalenessMillis) throws IOException {
+        Entry current = entry;
+        if (current != null && System.nanoTime() - current.nanos <= TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis))
+            return current.snapshot;
+        long requestNanos = System.nanoTime();
+        while (true) {
+            FutureTask<Entry> task = fetch.get();
+            if (task == null) {
+                FutureTask<Entry> newTask = new FutureTask<>(new Callable<Entry>() {
+                    @Override
+                    public Entry call() throws Exception {
+                        long nanos = System.nanoTime();
+                        Entry newEntry = new Entry(processUtils.getSnapshot(), nanos);
+                        entry = newEntry;
+                        return newEntry;
+                    }
+                });
+                if (!fetch.compareAndSet(null, newTask)) continue; // Another thread started a fetch first
+                try {
+                    newTask.run();
+                } finally {
+                    fetch.compareAndSet(newTask, null);
+                }
+                task = newTask;
+            }
+            Entry result = await(task);
+            // A fetch that started before this request may be too old already, but only if 0 staleness was requested
+            if (result.nanos - requestNanos >= -TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis)) return result.snapshot;
+        }
+    }
+
+    /**
+     * Returns the cached snapshot without fetching, or null if there is none yet.
+     */
+    public ProcessSnapshot getCached() {
+        Entry current = entry;
+        return current != null ? current.snapshot : null;
+    }
+
+    /**
+     * Removes the cached snapshot, thus the next {@link #get(long)} fetches a new one.
+     */
+    public void clear() {
+        entry = null;
+    }
+
+    private static Entry await(FutureTask<Entry> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the processes to be fetched");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private static class Entry {
+        final ProcessSnapshot snapshot;
+        /**
+         * {@link System#nanoTime()} when the fetch started.
+         */
+        final long nanos;
+
+        Entry(ProcessSnapshot snapshot, long nanos) {
+            this.snapshot = snapshot;
+            this.nanos = nanos;
+        }
+    }
+}
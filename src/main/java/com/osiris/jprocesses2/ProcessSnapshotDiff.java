@@ -0,0 +1,83 @@
+package com.osiris.jprocesses2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The differences between two {@link ProcessSnapshot}s, see {@link ProcessSnapshot#diff(ProcessSnapshot)}. <br>
+ * Processes are identified by their pid and start timestamp, thus a reused pid
+ * shows up as exited and started process. <br>
+ * Synthetic "Unknown" parent processes are ignored. <br>
+ */
+public class ProcessSnapshotDiff {
+    public final ProcessSnapshot previous;
+    public final ProcessSnapshot current;
+    /**
+     * Processes of {@link #current} that weren't running in {@link #previous}.
+     */
+    public final List<JProcess> started;
+    /**
+     * Processes of {@link #previous} that aren't running anymore in {@link #current}.
+     */
+    public final List<JProcess> exited;
+    /**
+     * Processes of {@link #current} that were already running in {@link #previous},
+     * but have at least one different detail, like their memory usage. <br>
+     * Use {@link #previous} to look up their old details by pid. <br>
+     */
+    public final List<JProcess> changed;
+
+    ProcessSnapshotDiff(ProcessSnapshot previous, ProcessSnapshot current) {
+        this.previous = previous;
+        this.current = current;
+        List<JProcess> started = new ArrayList<>(), exited = new ArrayList<>(), changed = new ArrayList<>();
+        for (JProcess p : current.getProcesses()) {
+            if (isSynthetic(p)) continue;
+            JProcess old = previous.getByPID(p.pid);
+            if (!isSame(old, p)) started.add(p);
+            else if (isChanged(old, p)) changed.add(p);
+        }
+        for (JProcess old : previous.getProcesses()) {
+            if (isSynthetic(old)) continue;
+            if (!isSame(old, current.getByPID(old.pid))) exited.add(old);
+        }
+        this.started = Collections.unmodifiableList(started);
+        this.exited = Collections.unmodifiableList(exited);
+        this.changed = Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * Returns true if there are no started, exited or changed processes.
+     */
+    public boolean isEmpty() {
+        return started.isEmpty() && exited.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Synthetic parents get created by {@link ProcessUtils#setParentChildProcesses(List)} for missing parents.
+     */
+    private static boolean isSynthetic(JProcess p) {
+        return p.command == null && p.timestampStart == null && "Unknown".equals(p.name);
+    }
+
+    /**
+     * Returns true if both are the same, real process, even if their details changed.
+     */
+    private static boolean isSame(JProcess old, JProcess p) {
+        return old != null && p != null && !isSynthetic(old) && !isSynthetic(p)
+                && Objects.equals(old.timestampStart, p.timestampStart);
+    }
+
+    private static boolean isChanged(JProcess old, JProcess p) {
+        return !Objects.equals(old.usedMemoryInKB, p.usedMemoryInKB)
+                || !Objects.equals(old.usedVirtualMemoryInKB, p.usedVirtualMemoryInKB)
+                || !Objects.equals(old.priority, p.priority)
+                || !Objects.equals(old.parentPid, p.parentPid)
+                || !Objects.equals(old.name, p.name)
+                || !Objects.equals(old.caption, p.caption)
+                || !Objects.equals(old.username, p.username)
+                || !Objects.equals(old.command, p.command);
+    }
+}
@@ -0,0 +1,47 @@
+package com.osiris.jprocesses2;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provides the raw process details used by {@link ProcessUtils}. <br>
+ * Implementations only fetch the processes, parent/child relations are set by {@link ProcessUtils}. <br>
+ * See {@link ProcessUtils#getDefaultSource()} for the implementation used by default on the current system. <br>
+ */
+public interface ProcessSource {
+    /**
+     * Fetches all the currently running processes. <br>
+     * The returned list is modifiable and parent/child relations are not set yet. <br>
+     */
+    List<JProcess> fetchAll() throws IOException;
+
+    /**
+     * Fetches all the currently running processes one by one and passes each to the provided visitor,
+     * without collecting them. <br>
+     * Only the provided details (and always the pid) are fetched, others stay null. <br>
+     */
+    void visit(Set<ProcessField> fields, ProcessVisitor visitor) throws IOException;
+
+    /**
+     * Fetches only the process with the provided pid, without listing all processes. <br>
+     * Returns null if there is no running process with that pid. <br>
+     */
+    JProcess fetch(String pid) throws IOException;
+
+    /**
+     * Fetches only the processes with the provided pids in one pass, without listing all processes. <br>
+     * The returned map contains the found processes mapped to their pid,
+     * pids of processes that aren't running are missing. <br>
+     */
+    Map<String, JProcess> fetch(Collection<String> pids) throws IOException;
+
+    /**
+     * Fetches the {@link JProcessExtra} of the processes with the provided pids in one pass. <br>
+     * The returned map contains every provided pid, processes that aren't running
+     * have {@link JProcessExtra#isAlive} set to false. <br>
+     */
+    Map<String, JProcessExtra> fetchExtraInfo(Collection<String> pids) throws IOException;
+}
@@ -0,0 +1,340 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.OS;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Compact, column based alternative to a list of {@link JProcess}. <br>
+ * Stores each detail in its own primitive array (struct-of-arrays), which uses
+ * a fraction of the heap a list of {@link JProcess} objects needs, thus is a good fit
+ * for keeping many snapshots in memory. <br>
+ * Rows are accessed by index (0 to {@link #size()} - 1), {@link #get(int)} creates a
+ * {@link JProcess} view of a row on demand. Missing numeric values are -1, except for priorities,
+ * where it's {@link #UNKNOWN_PRIORITY} since -1 is a valid priority. <br>
+ * Create one via {@link ProcessUtils#getProcessTable()}, {@link #of(List)} or a {@link Builder}. <br>
+ */
+public class ProcessTable {
+    public static final int UNKNOWN_PRIORITY = Integer.MIN_VALUE;
+    /**
+     * The time this table was created, in milliseconds since the epoch.
+     */
+    public final long timestamp;
+    private final int size;
+    private final int[] pids;
+    private final int[] parentPids;
+    private final long[] memoryInKB;
+    private final long[] virtualMemoryInKB;
+    private final long[] startTimes;
+    private final int[] priorities;
+    private final String[] names;
+    private final String[] usernames;
+    private final String[] commands;
+    /**
+     * Open addressing hash table of pid to row index + 1 (0 marks an empty slot).
+     */
+    private final int[] pidIndex;
+
+    private ProcessTable(Builder b) {
+        timestamp = b.timestamp;
+        size = b.size;
+        pids = Arrays.copyOf(b.pids, size);
+        parentPids = Arrays.copyOf(b.parentPids, size);
+        memoryInKB = Arrays.copyOf(b.memoryInKB, size);
+        virtualMemoryInKB = Arrays.copyOf(b.virtualMemoryInKB, size);
+        startTimes = Arrays.copyOf(b.startTimes, size);
+        priorities = Arrays.copyOf(b.priorities, size);
+        names = Arrays.copyOf(b.names, size);
+        usernames = Arrays.copyOf(b.usernames, size);
+        commands = Arrays.copyOf(b.commands, size);
+        pidIndex = new int[Integer.highestOneBit(Math.max(size, 1)) * 4];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(pids[i]);
+            while (pidIndex[slot] != 0) {
+                if (pids[pidIndex[slot] - 1] == pids[i]) break; // Keep first row for duplicates
+                slot = (slot + 1) & (pidIndex.length - 1);
+            }
+            if (pidIndex[slot] == 0) pidIndex[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Creates a table containing the provided processes, in the same order.
+     */
+    public static ProcessTable of(List<JProcess> processes) {
+        Builder builder = new Builder(processes.size());
+        for (JProcess p : processes) {
+            builder.add(p);
+        }
+        return builder.build();
+    }
+
+    private int slot(int pid) {
+        return (pid * 0x9E3779B9 >>> 7) & (pidIndex.length - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the row index of the process with the provided pid, or -1 if there is none.
+     */
+    public int indexOf(int pid) {
+        int slot = slot(pid);
+        int index;
+        while ((index = pidIndex[slot]) != 0) {
+            if (pids[index - 1] == pid) return index - 1;
+            slot = (slot + 1) & (pidIndex.length - 1);
+        }
+        return -1;
+    }
+
+    public int getPid(int index) {
+        checkIndex(index);
+        return pids[index];
+    }
+
+    public int getParentPid(int index) {
+        checkIndex(index);
+        return parentPids[index];
+    }
+
+    /**
+     * See {@link JProcess#usedMemoryInKB}.
+     */
+    public long getMemoryInKB(int index) {
+        checkIndex(index);
+        return memoryInKB[index];
+    }
+
+    /**
+     * See {@link JProcess#usedVirtualMemoryInKB}.
+     */
+    public long getVirtualMemoryInKB(int index) {
+        checkIndex(index);
+        return virtualMemoryInKB[index];
+    }
+
+    /**
+     * Returns the start time of the process in milliseconds since the epoch, or -1 if unknown.
+     */
+    public long getStartTime(int index) {
+        checkIndex(index);
+        return startTimes[index];
+    }
+
+    /**
+     * Returns the raw, system-dependent priority, see {@link JProcess#priority},
+     * or {@link #UNKNOWN_PRIORITY}.
+     */
+    public int getPriority(int index) {
+        checkIndex(index);
+        return priorities[index];
+    }
+
+    public String getName(int index) {
+        checkIndex(index);
+        return names[index];
+    }
+
+    public String getUsername(int index) {
+        checkIndex(index);
+        return usernames[index];
+    }
+
+    public String getCommand(int index) {
+        checkIndex(index);
+        return commands[index];
+    }
+
+    /**
+     * Returns the row indexes of the n processes with the largest value of the provided metric, largest first.
+     * Rows with a missing value are skipped. <br>
+     * Selects via a bounded heap instead of sorting all rows. <br>
+     */
+    public int[] topBy(ProcessMetric metric, int n) {
+        BoundedHeap heap = new BoundedHeap(n);
+        int[] rows = new int[n];
+        for (int i = 0; i < size; i++) {
+            long value = metric.getValue(this, i);
+            if (value < 0) continue;
+            int slot = heap.offer(value);
+            if (slot != -1) rows[slot] = i;
+        }
+        int[] ids = heap.sortedIds();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows[ids[i]];
+        }
+        return ids;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    /**
+     * Creates a new {@link JProcess} containing the details of the provided row. <br>
+     * Parent/child relations are not set, see {@link ProcessUtils#setParentChildProcesses(List)}. <br>
+     */
+    public JProcess get(int index) {
+        checkIndex(index);
+        JProcess p = new JProcess();
+        p.pid = toString(pids[index]);
+        p.parentPid = toString(parentPids[index]);
+        p.usedMemoryInKB = toString(memoryInKB[index]);
+        p.usedVirtualMemoryInKB = toString(virtualMemoryInKB[index]);
+        p.priority = priorities[index] == UNKNOWN_PRIORITY ? null : String.valueOf(priorities[index]);
+        p.name = names[index];
+        p.username = usernames[index];
+        p.command = commands[index];
+        p.timestampStartMillis = startTimes[index];
+        if (startTimes[index] != -1) {
+            // Same raw format as the default sources of this system, so that JProcess.getTimestampStart() can parse it
+            SimpleDateFormat format = OS.isWindows ? new SimpleDateFormat("yyyyMMddHHmmss")
+                    : new SimpleDateFormat("EEE MMM dd HH:mm:ss yyyy", Locale.ENGLISH);
+            p.timestampStart = format.format(new Date(startTimes[index]));
+        }
+        return p;
+    }
+
+    /**
+     * Creates a new list containing a {@link JProcess} view for each row, see {@link #get(int)}.
+     */
+    public List<JProcess> toList() {
+        List<JProcess> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+
+    private static String toString(long value) {
+        return value == -1 ? null : String.valueOf(value);
+    }
+
+    /**
+     * Collects rows and creates a {@link ProcessTable} from them. <br>
+     * Equal names and usernames share the same String instance. <br>
+     */
+    public static class Builder implements ProcessVisitor {
+        private final Map<String, String> strings = new HashMap<>();
+        private long timestamp = System.currentTimeMillis();
+        private int size;
+        private int[] pids;
+        private int[] parentPids;
+        private long[] memoryInKB;
+        private long[] virtualMemoryInKB;
+        private long[] startTimes;
+        private int[] priorities;
+        private String[] names;
+        private String[] usernames;
+        private String[] commands;
+
+        public Builder() {
+            this(64);
+        }
+
+        public Builder(int initialCapacity) {
+            initialCapacity = Math.max(initialCapacity, 1);
+            pids = new int[initialCapacity];
+            parentPids = new int[initialCapacity];
+            memoryInKB = new long[initialCapacity];
+            virtualMemoryInKB = new long[initialCapacity];
+            startTimes = new long[initialCapacity];
+            priorities = new int[initialCapacity];
+            names = new String[initialCapacity];
+            usernames = new String[initialCapacity];
+            commands = new String[initialCapacity];
+        }
+
+        public Builder timestamp(long timestamp) {
+            this.timestamp = timestamp;
+            return this;
+        }
+
+        /**
+         * Adds a row containing the details of the provided process. <br>
+         * Values that can't be parsed are stored as -1, or {@link #UNKNOWN_PRIORITY} for the priority. <br>
+         */
+        public Builder add(JProcess p) {
+            long startTime = p.timestampStartMillis;
+            if (startTime == -1 && p.timestampStart != null) {
+                try {
+                    startTime = p.getTimestampStart().getTime();
+                } catch (ParseException | RuntimeException ignored) {
+                }
+            }
+            return add((int) parse(p.pid, -1), (int) parse(p.parentPid, -1), parse(p.usedMemoryInKB, -1),
+                    parse(p.usedVirtualMemoryInKB, -1), startTime, (int) parse(p.priority, UNKNOWN_PRIORITY),
+                    p.name, p.username, p.command);
+        }
+
+        /**
+         * Same as {@link #add(JProcess)}, allows passing the builder directly to
+         * {@link ProcessUtils#visitProcesses(java.util.Set, ProcessVisitor)}.
+         */
+        @Override
+        public boolean visit(JProcess process) {
+            add(process);
+            return true;
+        }
+
+        public Builder add(int pid, int parentPid, long memoryInKB, long virtualMemoryInKB, long startTime,
+                           int priority, String name, String username, String command) {
+            if (size == pids.length) grow();
+            pids[size] = pid;
+            parentPids[size] = parentPid;
+            this.memoryInKB[size] = memoryInKB;
+            this.virtualMemoryInKB[size] = virtualMemoryInKB;
+            startTimes[size] = startTime;
+            priorities[size] = priority;
+            names[size] = dedupe(name);
+            usernames[size] = dedupe(username);
+            commands[size] = command;
+            size++;
+            return this;
+        }
+
+        private String dedupe(String s) {
+            if (s == null) return null;
+            String existing = strings.get(s);
+            if (existing != null) return existing;
+            strings.put(s, s);
+            return s;
+        }
+
+        private void grow() {
+            int capacity = pids.length * 2;
+            pids = Arrays.copyOf(pids, capacity);
+            parentPids = Arrays.copyOf(parentPids, capacity);
+            memoryInKB = Arrays.copyOf(memoryInKB, capacity);
+            virtualMemoryInKB = Arrays.copyOf(virtualMemoryInKB, capacity);
+            startTimes = Arrays.copyOf(startTimes, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+            names = Arrays.copyOf(names, capacity);
+            usernames = Arrays.copyOf(usernames, capacity);
+            commands = Arrays.copyOf(commands, capacity);
+        }
+
+        /**
+         * Parses a decimal number, or returns the provided value for missing ones
+         * if the string is null or not a number.
+         */
+        private static long parse(String s, long missing) {
+            if (s == null) return missing;
+            try {
+                return Long.parseLong(s.trim());
+            } catch (NumberFormatException e) {
+                return missing;
+            }
+        }
+
+        public ProcessTable build() {
+            return new ProcessTable(this);
+        }
+    }
+}
@@ -1,13 +1,67 @@
 package com.osiris.jprocesses2;
 
+import com.osiris.jprocesses2.util.AsyncExecutor;
+import com.osiris.jprocesses2.util.LibC;
+import com.osiris.jprocesses2.util.Metrics;
+import com.osiris.jprocesses2.util.NativeResult;
+import com.osiris.jprocesses2.util.NativeUtils;
 import com.osiris.jprocesses2.util.OS;
-import com.sun.jna.Platform;
+import com.osiris.jprocesses2.util.StreamPumps;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.win32.Kernel32;
+import com.sun.jna.platform.win32.WinNT;
 
 import java.io.*;
 import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 public class ProcessUtils {
+    private static final ProcessSource DEFAULT_SOURCE = createDefaultSource();
+    private static final ProcessSnapshotCache DEFAULT_CACHE = new ProcessSnapshotCache(new ProcessUtils(DEFAULT_SOURCE));
+    /**
+     * The source from where the processes get fetched. <br>
+     * See {@link #getDefaultSource()} for details. <br>
+     */
+    public ProcessSource source;
+    private ProcessSnapshotCache cache;
+
+    public ProcessUtils() {
+        this(DEFAULT_SOURCE);
+    }
+
+    public ProcessUtils(ProcessSource source) {
+        this.source = Objects.requireNonNull(source);
+    }
+
+    /**
+     * Returns the {@link ProcessSource} used by default on this system: <br>
+     * {@link WindowsProcessSource} on Windows, {@link LinuxProcessSource} on Linux when /proc is readable
+     * and {@link UnixProcessSource} on all other systems. <br>
+     */
+    public static ProcessSource getDefaultSource() {
+        return DEFAULT_SOURCE;
+    }
+
+    /**
+     * Returns true if the provided string is a plain, non-negative process id.
+     */
+    static boolean isPID(String s) {
+        if (s == null || s.isEmpty()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static ProcessSource createDefaultSource() {
+        if (OS.isWindows) return new WindowsProcessSource();
+        if (OS.isLinux && LinuxProcessSource.isSupported()) return new LinuxProcessSource();
+        return new UnixProcessSource();
+    }
 
     /**
      * See {@link #getThis(List)} for details.
@@ -22,11 +76,8 @@ public class ProcessUtils {
      * Could happen when using a JVM/JDK distro that changed the value this method relies on. <br>
      */
     public JProcess getThis(List<JProcess> list) {
-
-        String name = ManagementFactory.getRuntimeMXBean().getName();
-        int index = name.indexOf("@");
-        if (index == -1) return null;
-        String pid = name.substring(0, index);
+        String pid = getThisPID();
+        if (pid == null) return null;
         for (JProcess p :
                 list) {
             if (p.pid.equals(pid))
@@ -35,11 +86,30 @@ public class ProcessUtils {
         return null;
     }
 
+    /**
+     * Fetches only the process with the provided pid, without listing all processes, see {@link ProcessSource#fetch(String)}. <br>
+     * Returns null if there is no running process with that pid. <br>
+     * Note that {@link JProcess#parentProcess} and {@link JProcess#childProcesses} are not set,
+     * use {@link #getSnapshot()} if you need them. <br>
+     */
     public JProcess getByPID(String pid) throws IOException {
-        for (JProcess process : getProcesses()) {
-            if(Objects.equals(process.pid, pid)) return process;
-        }
-        return null;
+        return source.fetch(pid);
+    }
+
+    /**
+     * Fetches only the processes with the provided pids in one pass, see {@link ProcessSource#fetch(Collection)}. <br>
+     * Returns the found processes mapped to their pid, pids of processes that aren't running are missing. <br>
+     * Note that {@link JProcess#parentProcess} and {@link JProcess#childProcesses} are not set. <br>
+     */
+    public Map<String, JProcess> getByPIDs(Collection<String> pids) throws IOException {
+        return source.fetch(pids);
+    }
+
+    /**
+     * Same as {@link #getByPID(String)}, but looks the process up in the provided snapshot instead of fetching all processes.
+     */
+    public JProcess getByPID(ProcessSnapshot snapshot, String pid) {
+        return snapshot.getByPID(pid);
     }
 
     public JProcess getByCommand(String command) throws IOException {
@@ -49,6 +119,13 @@ public class ProcessUtils {
         return null;
     }
 
+    /**
+     * Same as {@link #getByCommand(String)}, but looks the process up in the provided snapshot instead of fetching all processes.
+     */
+    public JProcess getByCommand(ProcessSnapshot snapshot, String command) {
+        return snapshot.getByCommand(command);
+    }
+
     public JProcess getByName(String name) throws IOException {
         for (JProcess process : getProcesses()) {
             if(Objects.equals(process.name, name)) return process;
@@ -56,6 +133,13 @@ public class ProcessUtils {
         return null;
     }
 
+    /**
+     * Same as {@link #getByName(String)}, but looks the process up in the provided snapshot instead of fetching all processes.
+     */
+    public JProcess getByName(ProcessSnapshot snapshot, String name) {
+        return snapshot.getByName(name);
+    }
+
     public List<JProcess> getForUser(String username) throws IOException {
         List<JProcess> list = new ArrayList<>();
         for (JProcess process : getProcesses()) {
@@ -64,183 +148,480 @@ public class ProcessUtils {
         return list;
     }
 
+    /**
+     * Same as {@link #getForUser(String)}, but looks the processes up in the provided snapshot instead of fetching all processes.
+     */
+    public List<JProcess> getForUser(ProcessSnapshot snapshot, String username) {
+        return snapshot.getForUser(username);
+    }
+
+    /**
+     * Fetches all the currently running processes once and returns them as {@link ProcessSnapshot},
+     * which allows fast lookups without fetching again. <br>
+     */
+    public ProcessSnapshot getSnapshot() throws IOException {
+        return new ProcessSnapshot(getProcesses());
+    }
+
+    /**
+     * Same as {@link #getSnapshot()}, but returns a cached snapshot if it isn't older than the provided staleness. <br>
+     * Concurrent callers share one fetch, see {@link ProcessSnapshotCache}. When using the default source,
+     * the cache is shared by all {@link ProcessUtils} instances, thus the amount of fetches
+     * doesn't grow with the amount of callers. <br>
+     */
+    public ProcessSnapshot getSnapshot(long maxStalenessMillis) throws IOException {
+        return getSnapshotCache().get(maxStalenessMillis);
+    }
+
+    /**
+     * Same as {@link #getSnapshot(long)}, but runs on the {@link AsyncExecutor}, thus doesn't block the calling thread.
+     */
+    public Future<ProcessSnapshot> getSnapshotAsync(final long maxStalenessMillis) {
+        return AsyncExecutor.get().submit(new Callable<ProcessSnapshot>() {
+            @Override
+            public ProcessSnapshot call() throws Exception {
+                return getSnapshot(maxStalenessMillis);
+            }
+        });
+    }
+
+    /**
+     * Returns the cache used by {@link #getSnapshot(long)}.
+     */
+    public synchronized ProcessSnapshotCache getSnapshotCache() {
+        if (source == DEFAULT_SOURCE) return DEFAULT_CACHE;
+        if (cache == null || cache.processUtils.source != source)
+            cache = new ProcessSnapshotCache(new ProcessUtils(source));
+        return cache;
+    }
+
     /**
      * Fetches all the currently running processes.
      */
     public List<JProcess> getProcesses() throws IOException {
-        if (OS.isWindows) return fetchWindowsProcesses();
-        else return fetchUnixProcesses();
-    }
-
-    private List<JProcess> fetchUnixProcesses() throws IOException {
-        // ps -e -o pid,ruser,vsize,rss,%cpu,lstart,cputime,nice,ucomm,command
-        // The first returned line contains enables us to determine the column widths
-        Process process = new ProcessBuilder().command("ps", "-ww", "-e", "-o", "pid,ruser,vsize,rss,lstart,nice,ppid,ucomm,command").start();
-        List<JProcess> processesList = new ArrayList<>(50);
-        String line = "";
-        JProcess p = new JProcess();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            br.readLine(); // Skip first line since it only contains the captions
-            while ((line = br.readLine()) != null) {
-                p = new JProcess();
-                List<String> list = splitBySpaces(line);
-                p.pid = list.get(0);
-                p.username = list.get(1);
-                p.usedVirtualMemoryInKB = list.get(2);
-                p.usedMemoryInKB = list.get(3);
-                p.timestampStart = list.get(4) +" "+ list.get(5)+" "+list.get(6)+" "+list.get(7)+" "+list.get(8);
-                p.priority = list.get(9);
-                p.parentPid = list.get(10);
-                p.name = list.get(11);
-                for (int i = 12; i < list.size(); i++) {
-                    p.command += list.get(i)+" ";
+        long start = Metrics.start();
+        List<JProcess> list = source.fetchAll();
+        long linkStart = Metrics.start();
+        setParentChildProcesses(list);
+        if (start != 0) {
+            Metrics.stop(Metrics.Histogram.FETCH_LINK_NANOS, linkStart);
+            recordFetch(start, list.size());
+        }
+        return list;
+    }
+
+    private static void recordFetch(long startNanos, int processCount) {
+        Metrics.stop(Metrics.Histogram.FETCH_NANOS, startNanos);
+        Metrics.record(Metrics.Histogram.PROCESSES_PER_FETCH, processCount);
+        Metrics.increment(Metrics.Counter.FETCHES);
+    }
+
+    /**
+     * Fetches the {@link JProcessExtra} of all the provided processes in one pass,
+     * instead of one command per process like {@link JProcess#getExtraInfo()}. <br>
+     *
+     * @return pid mapped to its extra information, for every provided process.
+     * Processes that aren't running have {@link JProcessExtra#isAlive} set to false. <br>
+     */
+    public Map<String, JProcessExtra> getExtraInfo(Collection<JProcess> processes) throws IOException {
+        List<String> pids = new ArrayList<>(processes.size());
+        for (JProcess p : processes) {
+            pids.add(p.pid);
+        }
+        return source.fetchExtraInfo(pids);
+    }
+
+    /**
+     * Same as {@link #getProcesses()}, but runs on the {@link AsyncExecutor}, thus doesn't block the calling thread.
+     */
+    public Future<List<JProcess>> getProcessesAsync() {
+        return AsyncExecutor.get().submit(new Callable<List<JProcess>>() {
+            @Override
+            public List<JProcess> call() throws Exception {
+                return getProcesses();
+            }
+        });
+    }
+
+    /**
+     * Fetches all the currently running processes and returns them as compact {@link ProcessTable}. <br>
+     * Prefer this over {@link #getProcesses()} when keeping many snapshots in memory. <br>
+     */
+    public ProcessTable getProcessTable() throws IOException {
+        long start = Metrics.start();
+        ProcessTable.Builder builder = new ProcessTable.Builder();
+        source.visit(ProcessField.all(), builder);
+        ProcessTable table = builder.build();
+        if (start != 0) recordFetch(start, table.size());
+        return table;
+    }
+
+    /**
+     * Fetches all the currently running processes one by one and passes each to the provided visitor,
+     * without collecting them, thus memory usage stays the same regardless of the process count. <br>
+     * Only the provided details (and always the pid) are fetched, which can be a lot faster,
+     * for example {@code EnumSet.of(ProcessField.MEMORY)}. <br>
+     * Parent/child relations are not set. <br>
+     */
+    public void visitProcesses(Set<ProcessField> fields, ProcessVisitor visitor) throws IOException {
+        source.visit(fields, visitor);
+    }
+
+    /**
+     * Returns the n processes with the largest value of the provided metric, largest first. <br>
+     * Processes are selected while being fetched via {@link TopN}, thus the full list is never created,
+     * which makes this cheap enough to be called every second. <br>
+     * Parent/child relations are not set. <br>
+     */
+    public List<JProcess> getTopBy(ProcessMetric metric, int n) throws IOException {
+        return getTopBy(metric, n, ProcessField.all());
+    }
+
+    /**
+     * Same as {@link #getTopBy(ProcessMetric, int)}, but only fetches the provided details
+     * (and always the pid and the detail of the metric).
+     */
+    public List<JProcess> getTopBy(ProcessMetric metric, int n, Set<ProcessField> fields) throws IOException {
+        Set<ProcessField> needed = EnumSet.of(ProcessField.PID, metric.field);
+        needed.addAll(fields);
+        TopN topN = new TopN(metric, n);
+        source.visit(needed, topN);
+        return topN.getResult();
+    }
+
+    /**
+     * The provided list contains parent and child processes. <br>
+     * This method assigns parent to child processes and child to parent processes. <br>
+     * Processes whose parent is not in the list get a synthetic parent named "Unknown",
+     * which is shared by all processes with the same missing parent pid and added to the list. <br>
+     * Runs in linear time, since parents are looked up in a map by their pid. <br>
+     */
+    public void setParentChildProcesses(List<JProcess> processes) {
+        Map<String, JProcess> byPid = new HashMap<>(processes.size() * 4 / 3 + 1);
+        for (JProcess p : processes) {
+            if (!byPid.containsKey(p.pid)) byPid.put(p.pid, p);
+        }
+        Map<String, JProcess> unknownParents = new LinkedHashMap<>();
+        for (JProcess p : processes) {
+            JProcess parent = byPid.get(p.parentPid);
+            if (parent == null || parent == p) {
+                parent = unknownParents.get(p.parentPid);
+                if (parent == null) {
+                    parent = new JProcess();
+                    parent.name = "Unknown";
+                    parent.pid = p.parentPid;
+                    unknownParents.put(p.parentPid, parent);
                 }
-                p.command.trim();
-                processesList.add(p);
             }
-        } catch (Exception e){
-            throw new RuntimeException("Failed at process: \n"+p.toString()+"\n raw-line:\n"+line+"\n", e);
+            p.parentProcess = parent;
+            parent.childProcesses.add(p);
         }
-        setParentChildProcesses(processesList);
-        return processesList;
+        processes.addAll(unknownParents.values());
     }
 
     /**
-     * Additionally removes empty strings.
+     * Prints the currently running processes as a tree. <br>
+     * Shows the relation between parent/child processes. <br>
      */
-    private List<String> splitBySpaces(String s){
-        List<String> list = new ArrayList<>();
-        for (String s1 : s.split(" ")) {
-            if(!s1.isEmpty()) list.add(s1);
+    /**
+     * Sends the signal to all provided processes, see {@link JProcess#signal(int)}. <br>
+     * On Unix each process is signalled via kill(2) without forking any command. Without the C library
+     * and on Windows a single kill/taskkill command is executed for all processes, and only if that fails,
+     * one per process to determine the individual results. <br>
+     *
+     * @param signal signal number, for example {@link LibC#SIGTERM}.
+     * @return pid mapped to its result, in the order of the provided processes.
+     */
+    public Map<String, NativeResult> signal(Collection<JProcess> processes, int signal) {
+        Map<String, NativeResult> results = new LinkedHashMap<>();
+        if (processes.isEmpty()) return results;
+        if (!OS.isWindows && LibC.isAvailable()) {
+            for (JProcess p : processes) {
+                results.put(p.pid, p.signal(signal));
+            }
+            return results;
         }
-        return list;
+        List<String> command = new ArrayList<>();
+        if (OS.isWindows) {
+            if (signal == LibC.SIGTERM || signal == LibC.SIGKILL) {
+                command.add("taskkill");
+                if (signal == LibC.SIGKILL) command.add("/F");
+                for (JProcess p : processes) {
+                    command.add("/PID");
+                    command.add(p.pid);
+                }
+            }
+        } else {
+            command.add("kill");
+            command.add("-" + signal);
+            for (JProcess p : processes) {
+                if (JProcess.parsePid(p.pid) <= 0) { // Let the single signal report the invalid pid
+                    command.clear();
+                    break;
+                }
+                command.add(p.pid);
+            }
+        }
+        if (!command.isEmpty() && new NativeUtils().executeCommandAndGetCode(command.toArray(new String[0])) == 0) {
+            for (JProcess p : processes) {
+                NativeResult result = new NativeResult();
+                result.setSuccess(true);
+                results.put(p.pid, result);
+            }
+            Metrics.add(Metrics.Counter.SIGNALS_SENT, processes.size());
+            return results;
+        }
+        for (JProcess p : processes) {
+            results.put(p.pid, p.signal(signal));
+        }
+        return results;
     }
 
-    private List<JProcess> fetchWindowsProcesses() throws IOException {
-        Process process = new ProcessBuilder().command("wmic", "process", "get", "Name,Caption,ProcessId,ParentProcessId,UserModeTime," +
-                "Priority,VirtualSize,WorkingSetSize,CommandLine,CreationDate", "/VALUE").start();
-        List<JProcess> list = new ArrayList<>(50);
-        String line = "";
-        JProcess p = new JProcess();
-        int countRead = 1;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("Name")) {
-                    p.name = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("Caption")) {
-                    p.caption = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("ProcessId")) {
-                    p.pid = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("ParentProcessId")) {
-                    p.parentPid = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("UserModeTime")) {
-                    p.username = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("Priority")) {
-                    p.priority = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("VirtualSize")) {
-                    p.usedVirtualMemoryInKB = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("WorkingSetSize")) {
-                    p.usedMemoryInKB = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("Commandline")) {
-                    p.command = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
-                } else if (line.startsWith("CreationDate")) {
-                    p.timestampStart = line.substring(line.indexOf("=") + 1);
-                    if (countRead == 10) {
-                        list.add(p);
-                        p = new JProcess();
-                        countRead = 0;
-                    }
-                    countRead++;
+    /**
+     * Same as {@link #signal(Collection, int)}, but runs on the {@link AsyncExecutor}, thus doesn't block the calling thread.
+     */
+    public Future<Map<String, NativeResult>> signalAsync(final Collection<JProcess> processes, final int signal) {
+        return AsyncExecutor.get().submit(new Callable<Map<String, NativeResult>>() {
+            @Override
+            public Map<String, NativeResult> call() {
+                return signal(processes, signal);
+            }
+        });
+    }
+
+    /**
+     * Changes the priority of the provided process and all its child processes, see {@link JProcess#changePriority(int)}. <br>
+     * Requires the tree to be linked, like the processes returned by {@link #getProcesses()}. <br>
+     * On Unix without the C library a single renice command is executed for all processes,
+     * and only if that fails, one per process to determine the individual results. <br>
+     *
+     * @return pid mapped to its result, starting with the root.
+     */
+    public Map<String, NativeResult> changePriorityTree(JProcess root, int priority) {
+        return changePriority(getTree(root), priority);
+    }
+
+    /**
+     * Returns the provided process and all its child processes, parents before their children.
+     */
+    List<JProcess> getTree(JProcess root) {
+        List<JProcess> tree = new ArrayList<>();
+        Set<JProcess> visited = Collections.newSetFromMap(new IdentityHashMap<JProcess, Boolean>());
+        Deque<JProcess> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            JProcess p = stack.pop();
+            if (!visited.add(p)) continue;
+            tree.add(p);
+            for (int i = p.childProcesses.size() - 1; i >= 0; i--) {
+                stack.push(p.childProcesses.get(i));
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Gracefully stops the provided process and all its child processes. <br>
+     * All processes get {@link JProcess#stop()} at once, children before their parents, so that parents can't
+     * restart them. Processes that are still running after the timeout get {@link JProcess#kill()}. <br>
+     * Requires the tree to be linked, like the processes returned by {@link #getProcesses()}. <br>
+     *
+     * @param timeoutMillis how long to wait for the processes to exit, before killing them.
+     * @return pid mapped to its outcome, children before their parents.
+     */
+    public Map<String, StopOutcome> stopTree(JProcess root, long timeoutMillis) throws IOException, InterruptedException {
+        return terminate(getTree(root), timeoutMillis, true);
+    }
+
+    /**
+     * Forcefully kills the provided process and all its child processes,
+     * same as {@link #stopTree(JProcess, long)} without waiting for them to stop gracefully.
+     */
+    public Map<String, StopOutcome> killTree(JProcess root) throws IOException, InterruptedException {
+        return terminate(getTree(root), 0, false);
+    }
+
+    /**
+     * Same as {@link #stopTree(JProcess, long)}, but runs on the {@link AsyncExecutor}, thus doesn't block the calling thread.
+     */
+    public Future<Map<String, StopOutcome>> stopTreeAsync(final JProcess root, final long timeoutMillis) {
+        return AsyncExecutor.get().submit(new Callable<Map<String, StopOutcome>>() {
+            @Override
+            public Map<String, StopOutcome> call() throws Exception {
+                return stopTree(root, timeoutMillis);
+            }
+        });
+    }
+
+    private Map<String, StopOutcome> terminate(List<JProcess> tree, long timeoutMillis, boolean graceful)
+            throws IOException, InterruptedException {
+        Collections.reverse(tree); // Children first
+        Map<String, StopOutcome> outcomes = new LinkedHashMap<>();
+        for (JProcess p : tree) {
+            outcomes.put(p.pid, StopOutcome.ALREADY_EXITED);
+        }
+        List<JProcess> pending = getAlive(tree);
+        if (graceful && !pending.isEmpty()) {
+            signal(pending, LibC.SIGTERM); // Failures are handled by the kill below
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            long sleepMillis = 5;
+            while (true) {
+                List<JProcess> alive = getAlive(pending);
+                Set<JProcess> aliveSet = identitySet(alive);
+                for (JProcess p : pending) {
+                    if (!aliveSet.contains(p)) outcomes.put(p.pid, StopOutcome.STOPPED);
                 }
+                pending = alive;
+                long remaining = deadline - System.currentTimeMillis();
+                if (pending.isEmpty() || remaining <= 0) break;
+                Thread.sleep(Math.min(sleepMillis, remaining));
+                sleepMillis = Math.min(sleepMillis * 2, 100);
             }
         }
-        setParentChildProcesses(list);
-        return list;
+        if (pending.isEmpty()) return outcomes;
+        Map<String, NativeResult> results = signal(pending, LibC.SIGKILL);
+        List<JProcess> failed = new ArrayList<>();
+        for (JProcess p : pending) {
+            if (results.get(p.pid).isSuccess()) outcomes.put(p.pid, StopOutcome.KILLED);
+            else failed.add(p);
+        }
+        Set<JProcess> alive = identitySet(getAlive(failed));
+        for (JProcess p : failed) {
+            if (alive.contains(p)) outcomes.put(p.pid, StopOutcome.FAILED);
+            else outcomes.put(p.pid, graceful ? StopOutcome.STOPPED : StopOutcome.KILLED);
+        }
+        return outcomes;
+    }
+
+    private static Set<JProcess> identitySet(List<JProcess> processes) {
+        Set<JProcess> set = Collections.newSetFromMap(new IdentityHashMap<JProcess, Boolean>(processes.size() * 2));
+        set.addAll(processes);
+        return set;
     }
 
     /**
-     * The provided list contains parent and child processes. <br>
-     * This method assigns parent to child processes and child to parent processes. <br>
+     * Returns true if the process is still running. <br>
+     * If its start time is known, a different process that reused the pid is not mistaken for it. <br>
+     * On Linux zombies count as exited. <br>
      */
-    private void setParentChildProcesses(List<JProcess> processes) {
-        List<JProcess> pCopy = new ArrayList<>(processes);
-        for (JProcess p0 : pCopy) {
-            JProcess foundParentProcess = null;
-            for (JProcess p1 : processes) { // Search for parent process
-                if (!p1.pid.equals(p0.pid) && p1.pid.equals(p0.parentPid)) {
-                    foundParentProcess = p1;
+    public boolean isAlive(JProcess process) throws IOException {
+        return !getAlive(Collections.singletonList(process)).isEmpty();
+    }
+
+    /**
+     * Returns the processes that are still running, see {@link #isAlive(JProcess)}.
+     */
+    List<JProcess> getAlive(List<JProcess> processes) throws IOException {
+        List<JProcess> alive = new ArrayList<>(processes.size());
+        if (processes.isEmpty()) return alive;
+        if (!OS.isWindows && LinuxProcessSource.isSupported()) {
+            LinuxProcessSource.Reader reader = new LinuxProcessSource.Reader(EnumSet.of(ProcessField.TIMESTAMP_START));
+            for (JProcess p : processes) {
+                if (isPID(p.pid) && reader.isAlive(p.pid, p.timestampStartMillis)) alive.add(p);
+            }
+        } else if (!OS.isWindows && LibC.isAvailable()) {
+            for (JProcess p : processes) {
+                int pid = JProcess.parsePid(p.pid);
+                if (pid <= 0) continue;
+                int errno = LibC.kill(pid, 0);
+                if (errno == 0 || errno == 1) alive.add(p); // EPERM means it exists, but belongs to another user
+            }
+        } else {
+            List<String> pids = new ArrayList<>(processes.size());
+            for (JProcess p : processes) {
+                pids.add(p.pid);
+            }
+            Map<String, JProcess> running = source.fetch(pids);
+            for (JProcess p : processes) {
+                JProcess current = running.get(p.pid);
+                if (current == null) continue;
+                if (p.timestampStart != null && current.timestampStart != null
+                        && !p.timestampStart.equals(current.timestampStart)) continue; // Pid got reused
+                alive.add(p);
+            }
+        }
+        return alive;
+    }
+
+    /**
+     * Changes the priority of all the processes of the provided user. <br>
+     * On Unix this is a single setpriority(2) call for the user id, thus doesn't need to fetch the processes.
+     * Otherwise, or if the user id is unknown, falls back to renice -u, and on Windows to changing
+     * the priority of each process returned by {@link #getForUser(String)}. <br>
+     */
+    public NativeResult changePriorityForUser(String username, int priority) throws IOException {
+        NativeResult result = new NativeResult();
+        if (OS.isWindows) {
+            result.setSuccess(true);
+            for (NativeResult r : changePriority(getForUser(username), priority).values()) {
+                if (!r.isSuccess()) {
+                    result.setSuccess(false);
+                    result.setMessage(r.getMessage());
+                }
+            }
+            return result;
+        }
+        int uid = getUserId(username);
+        if (uid >= 0 && LibC.isAvailable()) {
+            int errno = LibC.setpriority(LibC.PRIO_USER, uid, priority);
+            if (errno == 0) result.setSuccess(true);
+            else {
+                result.setErrno(errno);
+                result.setMessage(LibC.strerror(errno));
+            }
+            Metrics.increment(result.isSuccess() ? Metrics.Counter.PRIORITY_CHANGES : Metrics.Counter.PRIORITY_CHANGES_FAILED);
+            return result;
+        }
+        if (new NativeUtils().executeCommandAndGetCode("renice", "" + priority, "-u", username) == 0)
+            result.setSuccess(true);
+        Metrics.increment(result.isSuccess() ? Metrics.Counter.PRIORITY_CHANGES : Metrics.Counter.PRIORITY_CHANGES_FAILED);
+        return result;
+    }
+
+    private Map<String, NativeResult> changePriority(List<JProcess> processes, int priority) {
+        Map<String, NativeResult> results = new LinkedHashMap<>();
+        if (processes.isEmpty()) return results;
+        if (!OS.isWindows && !LibC.isAvailable()) {
+            List<String> command = new ArrayList<>();
+            command.add("renice");
+            command.add("" + priority);
+            command.add("-p");
+            for (JProcess p : processes) {
+                if (JProcess.parsePid(p.pid) <= 0) { // Let the single change report the invalid pid
+                    command.clear();
                     break;
                 }
+                command.add(p.pid);
             }
-            if (foundParentProcess == null) {
-                foundParentProcess = new JProcess();
-                foundParentProcess.name = "Unknown";
-                foundParentProcess.pid = p0.parentPid;
-                processes.add(foundParentProcess);
+            if (!command.isEmpty() && new NativeUtils().executeCommandAndGetCode(command.toArray(new String[0])) == 0) {
+                for (JProcess p : processes) {
+                    p.priority = "" + priority;
+                    NativeResult result = new NativeResult();
+                    result.setSuccess(true);
+                    results.put(p.pid, result);
+                }
+                Metrics.add(Metrics.Counter.PRIORITY_CHANGES, processes.size());
+                return results;
             }
-            p0.parentProcess = foundParentProcess;
-            foundParentProcess.childProcesses.add(p0);
         }
+        for (JProcess p : processes) {
+            results.put(p.pid, p.changePriority(priority));
+        }
+        return results;
     }
 
     /**
-     * Prints the currently running processes as a tree. <br>
-     * Shows the relation between parent/child processes. <br>
+     * Returns the numeric id of the Unix user, or -1 if unknown. <br>
+     * Usernames that are plain numbers are returned as is, since that's how processes of users
+     * without a name are reported. <br>
      */
+    static int getUserId(String username) {
+        for (Map.Entry<String, String> e : LinuxProcessSource.getUsers().entrySet()) {
+            if (e.getValue().equals(username)) return JProcess.parsePid(e.getKey());
+        }
+        return JProcess.parsePid(username);
+    }
+
     public void printTree() throws IOException, InterruptedException {
         printTree(System.out, getProcesses());
     }
@@ -330,29 +711,139 @@ public class ProcessUtils {
     }
 
     /**
+     * Starts a new process and returns its details, fetched directly by its pid,
+     * thus without fetching all processes. <br>
+     * Uses {@link ProcessBuilder}, which on Linux already starts processes via posix_spawn. <br>
      *
-     * @param exeFile The executable program. Example: "C:\Windows\notepad.exe". Must not be .exe, can be anything that is executable.
-     * @param workingDir The working directory of the new process. If null current working directory is used.
-     * @param enviornment
-     * @param input
-     * @param errorInput
-     * @param output
-     * @return
-     * @throws Exception when the process could not be started.
+     * @param exeFile     The executable program. Example: "C:\Windows\notepad.exe". Must not be .exe, can be anything that is executable.
+     * @param args        The arguments separated by spaces, arguments containing spaces must be wrapped in double quotes.
+     *                    Can be null.
+     * @param workingDir  The working directory of the new process. If null current working directory is used.
+     * @param environment Variables added to the environment inherited from this process, or replacing them. Can be null.
+     * @param input       Gets written to the standard input of the new process, which gets closed afterwards.
+     *                    If null, the standard input gets closed right away.
+     * @param errorOutput Receives the standard error of the new process. If null, it gets discarded.
+     * @param output      Receives the standard output of the new process. If null, it gets discarded.
+     * @return the details of the new process. If it already exited before they could be fetched,
+     * only the pid, parent pid, name and command are set.
+     * @throws Exception            when the process could not be started.
      * @throws NullPointerException when a required parameter is null.
      */
-    public JProcess startProcess(File exeFile, String args, File workingDir, Map<String, String> enviornment,
-                                 InputStream input, InputStream errorInput, OutputStream output) throws Exception {
+    public JProcess startProcess(File exeFile, String args, File workingDir, Map<String, String> environment,
+                                 InputStream input, OutputStream errorOutput, OutputStream output) throws Exception {
         Objects.requireNonNull(exeFile);
-        String command = "\""+exeFile.getPath()+"\"";
-        if(args!=null) command = command +" "+args;
-
-        if(Platform.isWindows()){
-            //TODO boolean success = Kernel32.INSTANCE.CreateProcess(command, null, );
-            //if (!success) throw new Exception("Failed to start process with command '"+exeFile+"'!");
-        } else{
-            // TODO
+        List<String> command = new ArrayList<>();
+        command.add(exeFile.getPath());
+        if (args != null) command.addAll(splitArgs(args));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        if (workingDir != null) builder.directory(workingDir);
+        if (environment != null) builder.environment().putAll(environment);
+        File nullDevice = new File(OS.isWindows ? "NUL" : "/dev/null");
+        if (output == null) builder.redirectOutput(nullDevice);
+        if (errorOutput == null) builder.redirectError(nullDevice);
+        Process process = builder.start();
+        Metrics.increment(Metrics.Counter.FORKS);
+        if (input != null) writeInput(input, process.getOutputStream());
+        else process.getOutputStream().close();
+        if (output != null) StreamPumps.pump(process, process.getInputStream(), output, false);
+        if (errorOutput != null) StreamPumps.pump(process, process.getErrorStream(), errorOutput, false);
+
+        String pid = String.valueOf(getPid(process));
+        JProcess p = source.fetch(pid);
+        if (p == null) { // Already exited
+            p = new JProcess();
+            p.pid = pid;
+            p.parentPid = getThisPID();
+            p.name = exeFile.getName();
+            StringBuilder sb = new StringBuilder();
+            for (String part : command) {
+                if (sb.length() != 0) sb.append(' ');
+                sb.append(part);
+            }
+            p.command = sb.toString();
         }
-        return null;// TODO
+        return p;
+    }
+
+    /**
+     * Writes the input to the standard input of the process on the {@link AsyncExecutor}, then closes both.
+     */
+    private static void writeInput(final InputStream in, final OutputStream processIn) {
+        AsyncExecutor.get().submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                byte[] buffer = new byte[StreamPumps.BUFFER_SIZE];
+                try {
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        processIn.write(buffer, 0, count);
+                    }
+                    processIn.flush();
+                } catch (IOException ignored) { // Process exited, or stream closed
+                } finally {
+                    try {
+                        in.close();
+                        processIn.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Splits the arguments at spaces, except inside double quotes, which get removed.
+     */
+    static List<String> splitArgs(String args) {
+        List<String> list = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false, hasArg = false;
+        for (int i = 0; i < args.length(); i++) {
+            char c = args.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                hasArg = true;
+            } else if (c == ' ' && !quoted) {
+                if (hasArg) list.add(current.toString());
+                current.setLength(0);
+                hasArg = false;
+            } else {
+                current.append(c);
+                hasArg = true;
+            }
+        }
+        if (hasArg) list.add(current.toString());
+        return list;
+    }
+
+    /**
+     * Returns the pid of the provided process, via Process.pid() on Java 9 and newer,
+     * otherwise via the internal fields of the implementation.
+     */
+    static long getPid(Process process) throws Exception {
+        try {
+            return (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (NoSuchMethodException e) {
+            // Java 8 and older
+        }
+        if (OS.isWindows) {
+            Field handleField = process.getClass().getDeclaredField("handle");
+            handleField.setAccessible(true);
+            WinNT.HANDLE handle = new WinNT.HANDLE(new Pointer(handleField.getLong(process)));
+            return Kernel32.INSTANCE.GetProcessId(handle);
+        }
+        Field pidField = process.getClass().getDeclaredField("pid");
+        pidField.setAccessible(true);
+        return pidField.getInt(process);
+    }
+
+    /**
+     * Returns the pid of this process.
+     */
+    static String getThisPID() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int index = name.indexOf("@");
+        return index == -1 ? null : name.substring(0, index);
     }
 }
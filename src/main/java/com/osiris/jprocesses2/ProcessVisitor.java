@@ -0,0 +1,17 @@
+package com.osiris.jprocesses2;
+
+/**
+ * Receives processes one by one while they are being fetched,
+ * see {@link ProcessUtils#visitProcesses(java.util.Set, ProcessVisitor)}. <br>
+ * Processes are not collected, thus memory usage stays the same regardless of the process count,
+ * as long as the visitor doesn't keep them. <br>
+ */
+public interface ProcessVisitor {
+    /**
+     * Called for each fetched process, before the next one is fetched. <br>
+     * Parent/child relations are not set. <br>
+     *
+     * @return true to continue, false to stop fetching further processes.
+     */
+    boolean visit(JProcess process);
+}
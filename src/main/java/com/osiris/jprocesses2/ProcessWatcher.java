@@ -0,0 +1,362 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.LibC;
+import com.osiris.jprocesses2.util.OS;
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Notifies about the exit of any watched process, not only child processes, on a single background thread. <br>
+ * On Linux 5.3 and newer each process gets a pidfd, which becomes readable when the process exits,
+ * and all of them are waited for via one epoll instance, thus exits are noticed immediately and
+ * idle watching costs nothing. Otherwise, or if no more file descriptors are available,
+ * all watched processes are checked together every {@link #pollIntervalMillis},
+ * see {@link ProcessUtils#isAlive(JProcess)}. <br>
+ * Call {@link #close()} to stop watching and release the file descriptors. <br>
+ */
+public class ProcessWatcher implements Closeable {
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+    private static final int MAX_EVENTS = 64;
+
+    public final ProcessUtils processUtils;
+    public final long pollIntervalMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Long, Watch> watches = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1); // 0 is the wakeup event
+    private final AtomicInteger polledCount = new AtomicInteger();
+    private final Object lock = new Object();
+    private final Thread thread;
+    private final int epollFd, wakeupFd;
+    private volatile boolean closed;
+
+    public ProcessWatcher() {
+        this(new ProcessUtils(), 1000);
+    }
+
+    /**
+     * @param pollIntervalMillis interval for checking the processes that can't be watched natively.
+     */
+    public ProcessWatcher(ProcessUtils processUtils, long pollIntervalMillis) {
+        this(processUtils, pollIntervalMillis, true);
+    }
+
+    ProcessWatcher(ProcessUtils processUtils, long pollIntervalMillis, boolean tryNative) {
+        if (pollIntervalMillis <= 0)
+            throw new IllegalArgumentException("Interval must be positive, but was " + pollIntervalMillis);
+        this.processUtils = processUtils;
+        this.pollIntervalMillis = pollIntervalMillis;
+        int[] fds = tryNative ? openEpoll() : new int[]{-1, -1};
+        epollFd = fds[0];
+        wakeupFd = fds[1];
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "jProcesses2-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the epoll and eventfd file descriptors, or -1 for both if pidfds aren't supported.
+     */
+    private static int[] openEpoll() {
+        if (!OS.isLinux || !LibC.isAvailable()) return new int[]{-1, -1};
+        LibC.Lib c = LibC.INSTANCE;
+        int epollFd = -1;
+        try {
+            // Check support by opening a pidfd for this process
+            c.close(c.syscall(new NativeLong(LibC.SYS_PIDFD_OPEN), c.getpid(), 0).intValue());
+            epollFd = c.epoll_create1(LibC.EPOLL_CLOEXEC);
+            int wakeupFd = c.eventfd(0, LibC.EFD_CLOEXEC);
+            epollCtl(epollFd, LibC.EPOLL_CTL_ADD, wakeupFd, 0);
+            return new int[]{epollFd, wakeupFd};
+        } catch (Throwable e) { // ENOSYS on older kernels, or seccomp restrictions
+            if (epollFd != -1) closeQuietly(epollFd);
+            return new int[]{-1, -1};
+        }
+    }
+
+    /**
+     * Returns true if processes get watched via pidfd and epoll, false if they get polled.
+     */
+    public boolean isNative() {
+        return epollFd != -1;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching the provided process. <br>
+     * The returned future completes with the process once it exited, or right away if it isn't running.
+     * A process whose pid got reused in the meantime counts as exited, if its start time is known. <br>
+     * Cancelling the future stops watching the process. <br>
+     */
+    public Future<JProcess> watch(JProcess process) {
+        if (closed) throw new IllegalStateException("Watcher is closed");
+        Watch watch = new Watch(nextId.getAndIncrement(), process);
+        if (isNative()) {
+            int pid = JProcess.parsePid(process.pid);
+            if (pid <= 0) {
+                notifyExit(watch);
+                return watch;
+            }
+            try {
+                watch.fd = LibC.INSTANCE.syscall(new NativeLong(LibC.SYS_PIDFD_OPEN), pid, 0).intValue();
+            } catch (LastErrorException e) {
+                if (e.getErrorCode() == LibC.ESRCH) {
+                    notifyExit(watch);
+                    return watch;
+                }
+                // For example EMFILE if there are too many open file descriptors, thus poll instead
+            }
+            if (watch.fd != -1) {
+                watches.put(watch.id, watch);
+                try {
+                    epollCtl(epollFd, LibC.EPOLL_CTL_ADD, watch.fd, watch.id);
+                } catch (Exception e) {
+                    Logger.getLogger(ProcessWatcher.class.getName()).log(Level.WARNING, "Failed to watch " + process.pid, e);
+                    remove(watch);
+                    watch = new Watch(watch.id, process); // Poll instead
+                }
+            }
+            if (watch.fd != -1) {
+                boolean alive = true;
+                try { // Make sure the pid wasn't reused before getting the pidfd
+                    alive = !processUtils.getAlive(Collections.singletonList(process)).isEmpty();
+                } catch (Exception ignored) { // The pidfd reports the exit anyway
+                }
+                if (!alive) exited(watch);
+                else if (closed) watch.cancel(false);
+                return watch;
+            }
+        }
+        polledCount.incrementAndGet();
+        watches.put(watch.id, watch);
+        if (closed) watch.cancel(false);
+        wakeUp();
+        return watch;
+    }
+
+    /**
+     * Returns the amount of currently watched processes.
+     */
+    public int size() {
+        return watches.size();
+    }
+
+    /**
+     * Stops watching all processes and the background thread. Their futures get cancelled.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        wakeUp();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loop() {
+        Memory events = isNative() ? new Memory((long) MAX_EVENTS * LibC.EPOLL_EVENT_SIZE) : null;
+        Memory counter = isNative() ? new Memory(8) : null;
+        long lastPoll = System.currentTimeMillis();
+        try {
+            while (!closed) {
+                long untilPoll = lastPoll + pollIntervalMillis - System.currentTimeMillis();
+                boolean polling = hasPolled();
+                if (isNative()) {
+                    int count;
+                    try {
+                        count = LibC.INSTANCE.epoll_wait(epollFd, events, MAX_EVENTS,
+                                polling ? (int) Math.max(0, untilPoll) : -1);
+                    } catch (LastErrorException e) {
+                        if (e.getErrorCode() == LibC.EINTR) continue;
+                        throw e;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        long id = events.getLong((long) i * LibC.EPOLL_EVENT_SIZE + LibC.EPOLL_EVENT_DATA_OFFSET);
+                        if (id == 0) LibC.INSTANCE.read(wakeupFd, counter, new NativeLong(8)); // Reset
+                        else {
+                            Watch watch = watches.get(id);
+                            if (watch != null && watch.fd != -1) exited(watch);
+                        }
+                    }
+                } else {
+                    synchronized (lock) {
+                        if (!closed && !hasPolled()) lock.wait();
+                        else if (!closed && untilPoll > 0) lock.wait(untilPoll);
+                    }
+                }
+                if (polling && System.currentTimeMillis() - lastPoll >= pollIntervalMillis) {
+                    lastPoll = System.currentTimeMillis();
+                    poll();
+                } else if (!polling) lastPoll = System.currentTimeMillis();
+            }
+        } catch (Throwable e) {
+            Logger.getLogger(ProcessWatcher.class.getName()).log(Level.SEVERE, "Error watching processes", e);
+        } finally {
+            closed = true;
+            for (Watch watch : new ArrayList<>(watches.values())) {
+                watch.cancel(false);
+            }
+            if (isNative()) {
+                closeQuietly(wakeupFd);
+                closeQuietly(epollFd);
+            }
+        }
+    }
+
+    private boolean hasPolled() {
+        return polledCount.get() > 0;
+    }
+
+    /**
+     * Checks all processes without pidfd at once.
+     */
+    private void poll() {
+        List<JProcess> processes = new ArrayList<>();
+        List<Watch> polled = new ArrayList<>();
+        for (Watch watch : watches.values()) {
+            if (watch.fd != -1) continue;
+            polled.add(watch);
+            processes.add(watch.process);
+        }
+        if (polled.isEmpty()) return;
+        List<JProcess> alive;
+        try {
+            alive = processUtils.getAlive(processes);
+        } catch (Exception e) {
+            Logger.getLogger(ProcessWatcher.class.getName()).log(Level.SEVERE, "Error checking processes", e);
+            return;
+        }
+        Map<JProcess, Boolean> aliveSet = new IdentityHashMap<>(alive.size() * 2);
+        for (JProcess p : alive) {
+            aliveSet.put(p, Boolean.TRUE);
+        }
+        for (Watch watch : polled) {
+            if (!aliveSet.containsKey(watch.process)) exited(watch);
+        }
+    }
+
+    private void exited(Watch watch) {
+        if (remove(watch)) notifyExit(watch); // Otherwise already removed, for example cancelled
+    }
+
+    private void notifyExit(Watch watch) {
+        watch.complete();
+        for (Listener listener : listeners) {
+            try {
+                listener.onExit(watch.process);
+            } catch (Exception e) {
+                Logger.getLogger(ProcessWatcher.class.getName()).log(Level.SEVERE, "Error in listener", e);
+            }
+        }
+    }
+
+    /**
+     * Removes the watch and releases its pidfd. Returns false if it was already removed.
+     */
+    private boolean remove(Watch watch) {
+        if (watches.remove(watch.id) == null) return false;
+        if (watch.fd == -1) polledCount.decrementAndGet();
+        else {
+            try {
+                epollCtl(epollFd, LibC.EPOLL_CTL_DEL, watch.fd, watch.id);
+            } catch (Exception ignored) {
+            }
+            closeQuietly(watch.fd);
+        }
+        return true;
+    }
+
+    private void wakeUp() {
+        if (isNative()) {
+            Memory one = new Memory(8);
+            one.setLong(0, 1);
+            try {
+                LibC.INSTANCE.write(wakeupFd, one, new NativeLong(8));
+            } catch (Exception ignored) { // Already closed
+            }
+        } else {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private static void epollCtl(int epollFd, int op, int fd, long id) {
+        Memory event = new Memory(LibC.EPOLL_EVENT_SIZE);
+        event.setInt(0, LibC.EPOLLIN);
+        event.setLong(LibC.EPOLL_EVENT_DATA_OFFSET, id);
+        LibC.INSTANCE.epoll_ctl(epollFd, op, fd, event);
+    }
+
+    private static void closeQuietly(int fd) {
+        try {
+            LibC.INSTANCE.close(fd);
+        } catch (Exception ignored) {
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Gets called on the watcher thread once a watched process exited.
+         */
+        void onExit(JProcess process);
+    }
+
+    private class Watch extends FutureTask<JProcess> {
+        final long id;
+        final JProcess process;
+        /**
+         * The pidfd, or -1 if the process gets polled. Doesn't change once watched.
+         */
+        volatile int fd = -1;
+
+        Watch(long id, JProcess process) {
+            super(NOTHING, process);
+            this.id = id;
+            this.process = process;
+        }
+
+        void complete() {
+            run();
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) remove(this);
+        }
+    }
+}
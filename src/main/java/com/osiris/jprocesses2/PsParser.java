@@ -0,0 +1,165 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parses the output of ps directly from its raw bytes. <br>
+ * Lines are tokenized in a reusable buffer, thus only the final field values get allocated. <br>
+ * The columns must be in the same order as passed to ps via -o,
+ * with the command (if requested) being the last one. <br>
+ * Not thread-safe, but can be reused for multiple outputs. <br>
+ */
+public class PsParser {
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private final List<ProcessField> columns;
+    private byte[] buffer = new byte[65536];
+    private int start, end; // Unparsed bytes in buffer
+    private int lineStart, lineEnd; // Current line in buffer, newline excluded
+    private final byte[] scratch = new byte[64];
+    /**
+     * Width of the name column, derived from the header, or -1 if it's the last column.
+     */
+    private int nameWidth;
+
+    public PsParser(List<ProcessField> columns) {
+        this.columns = new ArrayList<>(columns);
+    }
+
+    /**
+     * Parses the provided ps output, including its header line, and passes each process to the visitor. <br>
+     * Lines that can't be parsed are skipped. Stops early if the visitor returns false. <br>
+     *
+     * @return true if all lines were parsed, false if the visitor stopped early.
+     */
+    public boolean parse(InputStream in, ProcessVisitor visitor) throws IOException {
+        start = end = 0;
+        if (!nextLine(in)) return true; // No output
+        parseHeader();
+        while (nextLine(in)) {
+            JProcess p = parseLine();
+            if (p == null) {
+                Metrics.increment(Metrics.Counter.PARSE_FAILURES);
+                Logger.getLogger(PsParser.class.getName()).log(Level.WARNING, "Failed to parse ps line: "
+                        + new String(buffer, lineStart, lineEnd - lineStart, CHARSET));
+                continue;
+            }
+            if (!visitor.visit(p)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Moves {@link #lineStart} and {@link #lineEnd} to the next line, reading more bytes if needed.
+     * Returns false at the end of the stream.
+     */
+    private boolean nextLine(InputStream in) throws IOException {
+        while (true) {
+            for (int i = start; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    lineStart = start;
+                    lineEnd = i > start && buffer[i - 1] == '\r' ? i - 1 : i;
+                    start = i + 1;
+                    return true;
+                }
+            }
+            if (start > 0) { // Move the incomplete line to the beginning
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            if (end == buffer.length) { // Very long line
+                byte[] bigger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, bigger, 0, end);
+                buffer = bigger;
+            }
+            int count = in.read(buffer, end, buffer.length - end);
+            if (count == -1) {
+                if (start == end) return false;
+                lineStart = start; // Last line without newline
+                lineEnd = end;
+                start = end;
+                return true;
+            }
+            end += count;
+        }
+    }
+
+    private int skipBlanks(int i) {
+        while (i < lineEnd && (buffer[i] == ' ' || buffer[i] == '\t')) i++;
+        return i;
+    }
+
+    private int tokenEnd(int i) {
+        while (i < lineEnd && buffer[i] != ' ' && buffer[i] != '\t') i++;
+        return i;
+    }
+
+    /**
+     * Each column has exactly one header token. The name column is padded to a fixed width,
+     * which is the only offset needed, since its values may contain spaces.
+     */
+    private void parseHeader() {
+        nameWidth = -1;
+        int i = lineStart;
+        for (int c = 0; c < columns.size(); c++) {
+            int tokenStart = skipBlanks(i);
+            i = tokenEnd(tokenStart);
+            if (columns.get(c) == ProcessField.NAME && c < columns.size() - 1) {
+                nameWidth = skipBlanks(i) - tokenStart - 1; // Minus the separating space
+            }
+        }
+    }
+
+    /**
+     * Returns the parsed process of the current line, or null if the line is malformed.
+     */
+    private JProcess parseLine() {
+        JProcess p = new JProcess();
+        int i = lineStart;
+        for (ProcessField field : columns) {
+            if (field == ProcessField.COMMAND) {
+                int from = skipBlanks(i);
+                int to = lineEnd;
+                while (to > from && buffer[to - 1] == ' ') to--;
+                p.command = new String(buffer, from, to - from, CHARSET);
+                i = lineEnd;
+            } else if (field == ProcessField.NAME) {
+                int from = i == lineStart ? i : i + 1; // Directly after the separating space
+                int to = nameWidth == -1 ? lineEnd : Math.min(from + nameWidth, lineEnd);
+                if (from >= lineEnd) return null;
+                i = to;
+                if (nameWidth != -1) { // Overflowing names continue until the next space
+                    while (i < lineEnd && buffer[i] != ' ') i++;
+                    to = i;
+                }
+                while (to > from && buffer[to - 1] == ' ') to--;
+                p.name = new String(buffer, from, to - from, CHARSET);
+            } else if (field == ProcessField.TIMESTAMP_START) {
+                int length = 0;
+                for (int t = 0; t < 5; t++) { // For example: Sun Oct 18 09:45:29 2026
+                    int from = skipBlanks(i);
+                    i = tokenEnd(from);
+                    if (from == i || length + i - from + 1 > scratch.length) return null;
+                    if (t != 0) scratch[length++] = ' ';
+                    System.arraycopy(buffer, from, scratch, length, i - from);
+                    length += i - from;
+                }
+                p.timestampStart = new String(scratch, 0, length, CHARSET);
+            } else {
+                int from = skipBlanks(i);
+                i = tokenEnd(from);
+                if (from == i) return null;
+                field.set(p, new String(buffer, from, i - from, CHARSET));
+            }
+        }
+        return p;
+    }
+}
@@ -0,0 +1,24 @@
+package com.osiris.jprocesses2;
+
+/**
+ * Outcome for a single process of {@link ProcessUtils#stopTree(JProcess, long)}
+ * and {@link ProcessUtils#killTree(JProcess)}.
+ */
+public enum StopOutcome {
+    /**
+     * The process wasn't running anymore before being signalled.
+     */
+    ALREADY_EXITED,
+    /**
+     * The process exited gracefully before the deadline.
+     */
+    STOPPED,
+    /**
+     * The process got forcefully killed.
+     */
+    KILLED,
+    /**
+     * The process couldn't be killed, for example because of missing permissions.
+     */
+    FAILED
+}
@@ -0,0 +1,36 @@
+package com.osiris.jprocesses2;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Measures the time spent waiting in read calls, for {@link com.osiris.jprocesses2.util.Metrics}.
+ */
+class TimedInputStream extends FilterInputStream {
+    long nanos;
+
+    TimedInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        try {
+            return super.read();
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return super.read(b, off, len);
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+}
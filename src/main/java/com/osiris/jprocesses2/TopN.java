@@ -0,0 +1,45 @@
+package com.osiris.jprocesses2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the n processes with the largest value of a {@link ProcessMetric} while processes are being fetched,
+ * thus the full list of processes never has to be created. <br>
+ * Pass it to {@link ProcessUtils#visitProcesses(java.util.Set, ProcessVisitor)},
+ * or use {@link ProcessUtils#getTopBy(ProcessMetric, int)}. <br>
+ * Selects via a bounded heap of primitive values, which is faster than sorting all processes,
+ * especially when n is small. Processes with a missing value are skipped. Not thread-safe. <br>
+ */
+public class TopN implements ProcessVisitor {
+    public final ProcessMetric metric;
+    private final BoundedHeap heap;
+    private final JProcess[] processes;
+
+    public TopN(ProcessMetric metric, int n) {
+        this.metric = metric;
+        this.heap = new BoundedHeap(n);
+        this.processes = new JProcess[n];
+    }
+
+    @Override
+    public boolean visit(JProcess process) {
+        long value = metric.getValue(process);
+        if (value < 0) return true;
+        int slot = heap.offer(value);
+        if (slot != -1) processes[slot] = process;
+        return true;
+    }
+
+    /**
+     * Returns the processes visited so far with the largest values, largest first.
+     */
+    public List<JProcess> getResult() {
+        int[] ids = heap.sortedIds();
+        List<JProcess> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(processes[id]);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,162 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.CommandExecutor;
+import com.osiris.jprocesses2.util.Metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.*;
+
+/**
+ * Fetches the processes by running the ps command. <br>
+ * Works on most Unix-like systems and is used as fallback where {@link LinuxProcessSource} isn't available. <br>
+ */
+public class UnixProcessSource implements ProcessSource {
+    /**
+     * The supported details in the order of their ps columns. <br>
+     * The command must be the last column, since it may contain spaces. <br>
+     */
+    private static final ProcessField[] COLUMNS = {ProcessField.PID, ProcessField.USERNAME, ProcessField.VIRTUAL_MEMORY,
+            ProcessField.MEMORY, ProcessField.TIMESTAMP_START, ProcessField.PRIORITY, ProcessField.PARENT_PID,
+            ProcessField.NAME, ProcessField.COMMAND};
+    /**
+     * Runs the commands, change its timeout to limit how long fetching may take.
+     */
+    public CommandExecutor executor = new CommandExecutor();
+
+    @Override
+    public List<JProcess> fetchAll() throws IOException {
+        ProcessCollector collector = new ProcessCollector(256);
+        visit(ProcessField.all(), collector);
+        return collector.list;
+    }
+
+    /**
+     * Only requests the columns of the requested details from ps.
+     */
+    @Override
+    public void visit(Set<ProcessField> fields, ProcessVisitor visitor) throws IOException {
+        runPs(fields, visitor, "-e");
+    }
+
+    @Override
+    public JProcess fetch(String pid) throws IOException {
+        if (!ProcessUtils.isPID(pid)) return null;
+        ProcessCollector collector = new ProcessCollector(1);
+        runPs(ProcessField.all(), collector, "-p", pid);
+        return collector.list.isEmpty() ? null : collector.list.get(0);
+    }
+
+    @Override
+    public Map<String, JProcess> fetch(Collection<String> pids) throws IOException {
+        Map<String, JProcess> map = new LinkedHashMap<>(pids.size() * 4 / 3 + 1);
+        StringBuilder pidList = new StringBuilder();
+        for (String pid : pids) {
+            if (!ProcessUtils.isPID(pid)) continue;
+            if (pidList.length() != 0) pidList.append(',');
+            pidList.append(pid);
+        }
+        if (pidList.length() == 0) return map;
+        ProcessCollector collector = new ProcessCollector(pids.size());
+        runPs(ProcessField.all(), collector, "-p", pidList.toString());
+        for (JProcess p : collector.list) {
+            map.put(p.pid, p);
+        }
+        return map;
+    }
+
+    /**
+     * Runs ps only once for all the provided pids.
+     */
+    @Override
+    public Map<String, JProcessExtra> fetchExtraInfo(Collection<String> pids) throws IOException {
+        Map<String, JProcessExtra> map = new LinkedHashMap<>(pids.size() * 4 / 3 + 1);
+        StringBuilder pidList = new StringBuilder();
+        for (String pid : pids) {
+            map.put(pid, new JProcessExtra());
+            if (!ProcessUtils.isPID(pid)) continue;
+            if (pidList.length() != 0) pidList.append(',');
+            pidList.append(pid);
+        }
+        if (pidList.length() == 0) return map;
+        // Empty headers via "=", thus each line only contains the values
+        try (CommandExecutor.Execution execution = executor.start("ps", "-ww", "-p", pidList.toString(),
+                "-o", "pid=,min_flt=,nlwp=");
+             BufferedReader br = new BufferedReader(new InputStreamReader(execution.getInputStream()))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] values = line.trim().split("\\s+");
+                if (values.length < 3) continue;
+                JProcessExtra extra = map.get(values[0]);
+                if (extra == null) continue;
+                extra.isAlive = true;
+                extra.minorPageFaults = values[1];
+                extra.threadCount = values[2];
+            }
+            execution.checkTimeout();
+        }
+        return map;
+    }
+
+    private static String getColumn(ProcessField field) {
+        switch (field) {
+            case PID:
+                return "pid";
+            case USERNAME:
+                return "ruser";
+            case VIRTUAL_MEMORY:
+                return "vsize";
+            case MEMORY:
+                return "rss";
+            case TIMESTAMP_START:
+                return "lstart";
+            case PRIORITY:
+                return "nice";
+            case PARENT_PID:
+                return "ppid";
+            case NAME:
+                return "ucomm";
+            case COMMAND:
+                return "command";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Runs ps for the processes matching the provided selection options
+     * and passes each parsed process to the visitor.
+     */
+    private void runPs(Set<ProcessField> fields, ProcessVisitor visitor, String... selection) throws IOException {
+        List<ProcessField> columns = new ArrayList<>();
+        StringBuilder format = new StringBuilder();
+        for (ProcessField field : COLUMNS) {
+            if (field != ProcessField.PID && !fields.contains(field)) continue;
+            columns.add(field);
+            if (format.length() != 0) format.append(',');
+            format.append(getColumn(field));
+        }
+        List<String> command = new ArrayList<>();
+        command.add("ps");
+        command.add("-ww");
+        command.addAll(Arrays.asList(selection));
+        command.add("-o");
+        command.add(format.toString());
+        long start = Metrics.start();
+        try (CommandExecutor.Execution execution = executor.start(command.toArray(new String[0]))) {
+            Metrics.stop(Metrics.Histogram.FETCH_SPAWN_NANOS, start);
+            long parseStart = Metrics.start();
+            InputStream in = execution.getInputStream();
+            TimedInputStream timedIn = parseStart != 0 ? new TimedInputStream(in) : null;
+            boolean complete = new PsParser(columns).parse(timedIn != null ? timedIn : in, visitor);
+            if (timedIn != null) {
+                Metrics.record(Metrics.Histogram.FETCH_READ_NANOS, timedIn.nanos);
+                Metrics.record(Metrics.Histogram.FETCH_PARSE_NANOS, System.nanoTime() - parseStart - timedIn.nanos);
+            }
+            if (!complete) return; // Visitor stopped early, closing terminates ps
+            execution.checkTimeout();
+        }
+    }
+}
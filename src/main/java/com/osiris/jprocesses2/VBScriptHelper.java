@@ -15,7 +15,10 @@
  */
 package com.osiris.jprocesses2;
 
-import java.io.*;
+import com.osiris.jprocesses2.util.CommandExecutor;
+
+import java.io.File;
+import java.io.FileWriter;
 import java.util.Date;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,66 +33,35 @@ class VBScriptHelper {
     private final String CRLF = "\r\n";
 
     private String executeScript(String scriptCode) {
-        String scriptResponse = "";
+        StringBuilder scriptResponse = new StringBuilder();
         File tmpFile = null;
-        FileWriter writer = null;
-        BufferedReader processOutput = null;
-        BufferedReader errorOutput = null;
 
         try {
             tmpFile = File.createTempFile("wmi4java" + new Date().getTime(), ".vbs");
-            writer = new FileWriter(tmpFile);
-            writer.write(scriptCode);
-            writer.flush();
-            writer.close();
-
-            Process process = Runtime.getRuntime().exec(
-                    new String[]{"cmd.exe", "/C", "cscript.exe", "/NoLogo", tmpFile.getAbsolutePath()});
-            processOutput
-                    = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            while ((line = processOutput.readLine()) != null) {
-                if (!line.isEmpty()) {
-                    scriptResponse += line + CRLF;
-                }
+            try (FileWriter writer = new FileWriter(tmpFile)) {
+                writer.write(scriptCode);
             }
 
-            if (scriptResponse.isEmpty()) {
-                errorOutput
-                        = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                String errorResponse = "";
-                while ((line = errorOutput.readLine()) != null) {
-                    if (!line.isEmpty()) {
-                        errorResponse += line + CRLF;
-                    }
-                }
-                if (!errorResponse.isEmpty()) {
-                    Logger.getLogger(VBScriptHelper.class.getName()).log(Level.SEVERE, "WMI operation finished in error: ");
+            CommandExecutor.Result result = new CommandExecutor().execute(
+                    "cmd.exe", "/C", "cscript.exe", "/NoLogo", tmpFile.getAbsolutePath());
+            for (String line : result.getOutput().split("\\r?\\n")) {
+                if (!line.isEmpty()) {
+                    scriptResponse.append(line).append(CRLF);
                 }
-                errorOutput.close();
             }
 
+            if (scriptResponse.length() == 0 && (result.timedOut || !result.getError().trim().isEmpty())) {
+                Logger.getLogger(VBScriptHelper.class.getName()).log(Level.SEVERE, "WMI operation finished in error: "
+                        + (result.timedOut ? "timed out " : "") + result.getError().trim());
+            }
         } catch (Exception ex) {
             Logger.getLogger(VBScriptHelper.class.getName()).log(Level.SEVERE, null, ex);
         } finally {
-            try {
-                if (processOutput != null) {
-                    processOutput.close();
-                }
-                if (errorOutput != null) {
-                    errorOutput.close();
-                }
-                if (writer != null) {
-                    writer.close();
-                }
-                if (tmpFile != null) {
-                    tmpFile.delete();
-                }
-            } catch (IOException ioe) {
-                Logger.getLogger(VBScriptHelper.class.getName()).log(Level.SEVERE, null, ioe);
+            if (tmpFile != null) {
+                tmpFile.delete();
             }
         }
-        return scriptResponse.trim();
+        return scriptResponse.toString().trim();
     }
 
     /**
@@ -0,0 +1,142 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.CommandExecutor;
+import com.osiris.jprocesses2.util.Metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.*;
+
+/**
+ * Fetches the processes by running the wmic command on Windows.
+ */
+public class WindowsProcessSource implements ProcessSource {
+    /**
+     * The supported details in the order of their wmic properties.
+     */
+    private static final ProcessField[] PROPERTIES = {ProcessField.NAME, ProcessField.CAPTION, ProcessField.PID,
+            ProcessField.PARENT_PID, ProcessField.USERNAME, ProcessField.PRIORITY, ProcessField.VIRTUAL_MEMORY,
+            ProcessField.MEMORY, ProcessField.COMMAND, ProcessField.TIMESTAMP_START};
+    /**
+     * Runs the commands, change its timeout to limit how long fetching may take.
+     */
+    public CommandExecutor executor = new CommandExecutor();
+
+    @Override
+    public List<JProcess> fetchAll() throws IOException {
+        ProcessCollector collector = new ProcessCollector(256);
+        visit(ProcessField.all(), collector);
+        return collector.list;
+    }
+
+    /**
+     * Only requests the properties of the requested details from wmic.
+     */
+    @Override
+    public void visit(Set<ProcessField> fields, ProcessVisitor visitor) throws IOException {
+        runWmic(fields, visitor, new ArrayList<String>());
+    }
+
+    @Override
+    public JProcess fetch(String pid) throws IOException {
+        if (!ProcessUtils.isPID(pid)) return null;
+        ProcessCollector collector = new ProcessCollector(1);
+        runWmic(ProcessField.all(), collector, Arrays.asList("where", "\"ProcessId=" + pid + "\""));
+        return collector.list.isEmpty() ? null : collector.list.get(0);
+    }
+
+    @Override
+    public Map<String, JProcess> fetch(Collection<String> pids) throws IOException {
+        Map<String, JProcess> map = new LinkedHashMap<>(pids.size() * 4 / 3 + 1);
+        StringBuilder condition = new StringBuilder();
+        for (String pid : pids) {
+            if (!ProcessUtils.isPID(pid)) continue;
+            if (condition.length() != 0) condition.append(" or ");
+            condition.append("ProcessId=").append(pid);
+        }
+        if (condition.length() == 0) return map;
+        ProcessCollector collector = new ProcessCollector(pids.size());
+        runWmic(ProcessField.all(), collector, Arrays.asList("where", "\"" + condition + "\""));
+        for (JProcess p : collector.list) {
+            map.put(p.pid, p);
+        }
+        return map;
+    }
+
+    /**
+     * Runs wmic only once for all the provided pids.
+     */
+    @Override
+    public Map<String, JProcessExtra> fetchExtraInfo(Collection<String> pids) throws IOException {
+        Map<String, JProcessExtra> map = new LinkedHashMap<>(pids.size() * 4 / 3 + 1);
+        StringBuilder condition = new StringBuilder();
+        for (String pid : pids) {
+            map.put(pid, new JProcessExtra());
+            if (!ProcessUtils.isPID(pid)) continue;
+            if (condition.length() != 0) condition.append(" or ");
+            condition.append("ProcessId=").append(pid);
+        }
+        if (condition.length() == 0) return map;
+        try (CommandExecutor.Execution execution = executor.start("wmic", "process", "where", "\"" + condition + "\"",
+                "get", "PageFaults,ProcessId,ThreadCount", "/VALUE");
+             BufferedReader br = new BufferedReader(new InputStreamReader(execution.getInputStream()))) {
+            String line, pageFaults = null, pid = null, threadCount = null;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                int i = line.indexOf('=');
+                if (i == -1) continue;
+                String key = line.substring(0, i), value = line.substring(i + 1);
+                if (key.equalsIgnoreCase("PageFaults")) pageFaults = value;
+                else if (key.equalsIgnoreCase("ProcessId")) pid = value;
+                else if (key.equalsIgnoreCase("ThreadCount")) threadCount = value;
+                if (pageFaults != null && pid != null && threadCount != null) {
+                    JProcessExtra extra = map.get(pid);
+                    if (extra != null) {
+                        extra.isAlive = true;
+                        extra.minorPageFaults = pageFaults;
+                        extra.threadCount = threadCount;
+                    }
+                    pageFaults = pid = threadCount = null;
+                }
+            }
+            execution.checkTimeout();
+        }
+        return map;
+    }
+
+    /**
+     * Runs wmic for the processes matching the provided where clause, or for all processes if it's empty,
+     * and passes each parsed process to the visitor.
+     */
+    private void runWmic(Set<ProcessField> fields, ProcessVisitor visitor, List<String> whereClause) throws IOException {
+        List<ProcessField> columns = new ArrayList<>();
+        StringBuilder get = new StringBuilder();
+        for (ProcessField field : PROPERTIES) {
+            if (field != ProcessField.PID && !fields.contains(field)) continue;
+            columns.add(field);
+            if (get.length() != 0) get.append(',');
+            get.append(WmicParser.getProperty(field));
+        }
+        List<String> command = new ArrayList<>();
+        command.add("wmic");
+        command.add("process");
+        command.addAll(whereClause);
+        command.addAll(Arrays.asList("get", get.toString(), "/VALUE"));
+        long start = Metrics.start();
+        try (CommandExecutor.Execution execution = executor.start(command.toArray(new String[0]))) {
+            Metrics.stop(Metrics.Histogram.FETCH_SPAWN_NANOS, start);
+            long parseStart = Metrics.start();
+            InputStream in = execution.getInputStream();
+            TimedInputStream timedIn = parseStart != 0 ? new TimedInputStream(in) : null;
+            boolean complete = new WmicParser(columns).parse(timedIn != null ? timedIn : in, visitor);
+            if (timedIn != null) {
+                Metrics.record(Metrics.Histogram.FETCH_READ_NANOS, timedIn.nanos);
+                Metrics.record(Metrics.Histogram.FETCH_PARSE_NANOS, System.nanoTime() - parseStart - timedIn.nanos);
+            }
+            if (!complete) return; // Visitor stopped early, closing terminates wmic
+            execution.checkTimeout();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.osiris.jprocesses2;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the output of wmic process get ... /VALUE,
+ * which contains one Property=Value line per detail. <br>
+ * Can be reused for multiple outputs. <br>
+ */
+public class WmicParser {
+    private final Map<String, ProcessField> properties = new HashMap<>();
+
+    /**
+     * @param columns the details that were requested from wmic, in any order.
+     */
+    public WmicParser(List<ProcessField> columns) {
+        for (ProcessField field : columns) {
+            properties.put(getProperty(field).toLowerCase(), field);
+        }
+    }
+
+    /**
+     * Returns the name of the wmic property containing the provided detail.
+     */
+    public static String getProperty(ProcessField field) {
+        switch (field) {
+            case NAME:
+                return "Name";
+            case CAPTION:
+                return "Caption";
+            case PID:
+                return "ProcessId";
+            case PARENT_PID:
+                return "ParentProcessId";
+            case USERNAME:
+                return "UserModeTime";
+            case PRIORITY:
+                return "Priority";
+            case VIRTUAL_MEMORY:
+                return "VirtualSize";
+            case MEMORY:
+                return "WorkingSetSize";
+            case COMMAND:
+                return "CommandLine";
+            case TIMESTAMP_START:
+                return "CreationDate";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parses the provided wmic output and passes each process to the visitor. <br>
+     * Stops early if the visitor returns false. <br>
+     *
+     * @return true if the whole output was parsed, false if the visitor stopped early.
+     */
+    public boolean parse(InputStream in, ProcessVisitor visitor) throws IOException {
+        String line;
+        JProcess p = new JProcess();
+        int countRead = 0;
+        BufferedReader br = new BufferedReader(new InputStreamReader(in));
+        while ((line = br.readLine()) != null) {
+            int i = line.indexOf("=");
+            if (i == -1) continue;
+            ProcessField field = properties.get(line.substring(0, i).trim().toLowerCase());
+            if (field == null) continue;
+            field.set(p, line.substring(i + 1));
+            countRead++;
+            if (countRead == properties.size()) { // Read all properties of this process
+                if (!visitor.visit(p)) return false;
+                p = new JProcess();
+                countRead = 0;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+package com.osiris.jprocesses2.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor used by the asynchronous methods, like {@link com.osiris.jprocesses2.ProcessUtils#getProcessesAsync()}. <br>
+ * By default runs at most {@link #DEFAULT_CONCURRENCY} tasks at once and queues the rest.
+ * Uses virtual threads when running on Java 21 or newer, otherwise daemon platform threads
+ * that get released when idle. <br>
+ * Replace it via {@link #set(ExecutorService)} to control the concurrency yourself. <br>
+ */
+public class AsyncExecutor {
+    public static final int DEFAULT_CONCURRENCY = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static volatile ExecutorService executor;
+
+    /**
+     * Returns the current executor, creating the default one if needed.
+     */
+    public static ExecutorService get() {
+        ExecutorService current = executor;
+        if (current != null) return current;
+        synchronized (AsyncExecutor.class) {
+            if (executor == null) executor = create(DEFAULT_CONCURRENCY);
+            return executor;
+        }
+    }
+
+    /**
+     * Sets the executor used by all asynchronous methods from now on. <br>
+     * The previous executor is not shut down. Null restores the default. <br>
+     */
+    public static synchronized void set(ExecutorService executor) {
+        AsyncExecutor.executor = executor;
+    }
+
+    /**
+     * Creates an executor running at most the provided amount of tasks at once, see {@link AsyncExecutor}.
+     */
+    public static ExecutorService create(int concurrency) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrency, concurrency, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), createThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Returns true if the default executor uses virtual threads.
+     */
+    public static boolean isVirtual() {
+        return VirtualThreads.FACTORY != null;
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        if (VirtualThreads.FACTORY != null) return VirtualThreads.FACTORY;
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "jProcesses2-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Looks up Thread.ofVirtual() via reflection, since this library gets compiled for Java 7.
+     */
+    private static class VirtualThreads {
+        static final ThreadFactory FACTORY = load();
+
+        private static ThreadFactory load() {
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "jProcesses2-async-", 1L);
+                Method factory = builderClass.getMethod("factory");
+                return (ThreadFactory) factory.invoke(builder);
+            } catch (Throwable e) {
+                return null; // Older Java version, or preview features not enabled
+            }
+        }
+    }
+}
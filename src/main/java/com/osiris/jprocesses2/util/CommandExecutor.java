@@ -0,0 +1,287 @@
+package com.osiris.jprocesses2.util;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs external commands with a deadline. <br>
+ * Both output streams are drained at the same time via {@link StreamPumps}, thus a command can't block
+ * because of a full pipe, and only up to {@link #maxOutputBytes} of each are kept.
+ * Commands still running at the deadline get forcefully terminated. <br>
+ * Thread-safe, as long as the public fields aren't changed while executing. <br>
+ */
+public class CommandExecutor {
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+    public static final int DEFAULT_MAX_OUTPUT_BYTES = 16 * 1024 * 1024;
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jProcesses2-command-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Maximum time a command may run, in milliseconds.
+     */
+    public long timeoutMillis;
+    /**
+     * Maximum amount of bytes kept of the standard output and of the standard error each,
+     * the rest gets read and discarded.
+     */
+    public int maxOutputBytes;
+
+    public CommandExecutor() {
+        this(DEFAULT_TIMEOUT_MILLIS, DEFAULT_MAX_OUTPUT_BYTES);
+    }
+
+    public CommandExecutor(long timeoutMillis, int maxOutputBytes) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    /**
+     * Runs the command and waits until it exited, or the deadline passed.
+     *
+     * @throws IOException if the command couldn't be started.
+     */
+    public Result execute(String... command) throws IOException {
+        Execution execution = start(command);
+        LimitedOutputStream out = new LimitedOutputStream(maxOutputBytes);
+        Future<Long> outPump = StreamPumps.pump(execution.process, execution.process.getInputStream(), out, false);
+        try {
+            int exitCode = execution.waitFor();
+            awaitQuietly(outPump, execution);
+            return new Result(exitCode, execution.timedOut, out.toByteArray(), execution.err.toByteArray(),
+                    out.truncated || execution.err.truncated);
+        } finally {
+            execution.close();
+        }
+    }
+
+    /**
+     * Starts the command and returns right away, for reading its standard output while it runs,
+     * via {@link Execution#getInputStream()}. <br>
+     * Its standard input gets closed and its standard error drained in the background.
+     * Close the returned execution once done. <br>
+     *
+     * @throws IOException if the command couldn't be started.
+     */
+    public Execution start(String... command) throws IOException {
+        long start = Metrics.start();
+        Process process = new ProcessBuilder(command).start();
+        Metrics.increment(Metrics.Counter.FORKS);
+        final Execution execution = new Execution(process, timeoutMillis, maxOutputBytes);
+        execution.startNanos = start;
+        try {
+            process.getOutputStream().close();
+        } catch (IOException ignored) {
+        }
+        execution.errPump = StreamPumps.pump(process, process.getErrorStream(), execution.err, false);
+        execution.watchdog = WATCHDOG.schedule(new Runnable() {
+            @Override
+            public void run() {
+                execution.timeout();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        return execution;
+    }
+
+    /**
+     * Waits for the pump, which only completes once the stream ended, or the process got killed.
+     */
+    private static void awaitQuietly(Future<Long> pump, Execution execution) {
+        try {
+            pump.get(Math.max(1, execution.deadline - System.currentTimeMillis()) + 1000, TimeUnit.MILLISECONDS);
+        } catch (Exception ignored) { // Output stays incomplete
+        }
+    }
+
+    /**
+     * Forcefully terminates the process, via Process.destroyForcibly() on Java 8 and newer.
+     */
+    static void kill(Process process) {
+        try {
+            Process.class.getMethod("destroyForcibly").invoke(process);
+        } catch (Exception e) {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Returns true if the process exited.
+     */
+    static boolean hasExited(Process process) {
+        try {
+            process.exitValue();
+            return true;
+        } catch (IllegalThreadStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A running command, see {@link #start(String...)}.
+     */
+    public static class Execution implements Closeable {
+        public final Process process;
+        /**
+         * When the command gets terminated, in milliseconds since the epoch.
+         */
+        public final long deadline;
+        final LimitedOutputStream err;
+        Future<Long> errPump;
+        ScheduledFuture<?> watchdog;
+        volatile boolean timedOut;
+        long startNanos;
+        private boolean closed;
+
+        Execution(Process process, long timeoutMillis, int maxOutputBytes) {
+            this.process = process;
+            this.deadline = System.currentTimeMillis() + timeoutMillis;
+            this.err = new LimitedOutputStream(maxOutputBytes);
+        }
+
+        /**
+         * The standard output of the command. Ends early if the command got terminated at the deadline.
+         */
+        public InputStream getInputStream() {
+            return process.getInputStream();
+        }
+
+        /**
+         * Returns true if the command got terminated because it didn't exit before the deadline.
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * Returns the standard error so far, see {@link CommandExecutor#maxOutputBytes}.
+         */
+        public String getError() {
+            return new String(err.toByteArray());
+        }
+
+        /**
+         * Waits until the command exited, or got terminated at the deadline, and returns its exit code.
+         */
+        public int waitFor() throws InterruptedIOException {
+            long sleepMillis = 1;
+            while (!hasExited(process)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) timeout();
+                try {
+                    Thread.sleep(Math.max(1, Math.min(sleepMillis, remaining)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    kill(process);
+                    throw new InterruptedIOException("Interrupted while waiting for the command");
+                }
+                sleepMillis = Math.min(sleepMillis * 2, 20);
+            }
+            awaitQuietly(errPump, this);
+            return process.exitValue();
+        }
+
+        /**
+         * Waits for the command to exit and throws an exception if it got terminated at the deadline,
+         * thus call once its output was read.
+         */
+        public void checkTimeout() throws IOException {
+            waitFor();
+            if (timedOut)
+                throw new IOException("Command timed out and got terminated, error output: " + getError());
+        }
+
+        void timeout() {
+            if (hasExited(process) || timedOut) return;
+            timedOut = true;
+            Metrics.increment(Metrics.Counter.COMMAND_TIMEOUTS);
+            kill(process);
+        }
+
+        /**
+         * Terminates the command if it's still running and releases its resources.
+         */
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+            closed = true;
+            Metrics.stop(Metrics.Histogram.COMMAND_NANOS, startNanos);
+            if (watchdog != null) watchdog.cancel(false);
+            if (!hasExited(process)) kill(process);
+            try {
+                process.getInputStream().close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * The outcome of {@link #execute(String...)}.
+     */
+    public static class Result {
+        /**
+         * The exit code, usually not 0 if the command got terminated.
+         */
+        public final int exitCode;
+        /**
+         * True if the command got terminated because it didn't exit before the deadline.
+         */
+        public final boolean timedOut;
+        public final byte[] output;
+        public final byte[] error;
+        /**
+         * True if the output or error exceeded {@link CommandExecutor#maxOutputBytes} and got cut off.
+         */
+        public final boolean truncated;
+
+        public Result(int exitCode, boolean timedOut, byte[] output, byte[] error, boolean truncated) {
+            this.exitCode = exitCode;
+            this.timedOut = timedOut;
+            this.output = output;
+            this.error = error;
+            this.truncated = truncated;
+        }
+
+        public String getOutput() {
+            return new String(output);
+        }
+
+        public String getError() {
+            return new String(error);
+        }
+
+        public boolean isSuccess() {
+            return exitCode == 0 && !timedOut;
+        }
+    }
+
+    /**
+     * Keeps only the first bytes written to it.
+     */
+    static class LimitedOutputStream extends ByteArrayOutputStream {
+        final int limit;
+        volatile boolean truncated;
+
+        LimitedOutputStream(int limit) {
+            super(Math.min(limit, 256));
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int keep = Math.min(len, limit - count);
+            if (keep < len) truncated = true;
+            if (keep > 0) super.write(b, off, keep);
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (count < limit) super.write(b);
+            else truncated = true;
+        }
+    }
+}
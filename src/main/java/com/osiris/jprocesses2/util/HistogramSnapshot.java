@@ -0,0 +1,54 @@
+package com.osiris.jprocesses2.util;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Values of a {@link Metrics.Histogram} at one point in time. <br>
+ * Percentiles are the upper bound of the power of two range containing them, thus accurate to a factor of 2. <br>
+ */
+public class HistogramSnapshot {
+    private final long count, sum, max, p50, p90, p99;
+
+    @ConstructorProperties({"count", "sum", "max", "p50", "p90", "p99"})
+    public HistogramSnapshot(long count, long sum, long max, long p50, long p90, long p99) {
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " mean=" + getMean() + " p50=" + p50 + " p90=" + p90 + " p99=" + p99 + " max=" + max;
+    }
+}
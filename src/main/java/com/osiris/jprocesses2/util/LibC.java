@@ -0,0 +1,165 @@
+package com.osiris.jprocesses2.util;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * Direct access to the C standard library via JNA. <br>
+ * Only available on Unix-like systems, check {@link #isAvailable()} before using {@link #INSTANCE}. <br>
+ */
+public class LibC {
+    /**
+     * Linux value of sysconf(_SC_CLK_TCK).
+     */
+    public static final int SC_CLK_TCK = 2;
+    /**
+     * Linux value of sysconf(_SC_PAGESIZE).
+     */
+    public static final int SC_PAGESIZE = 30;
+    /**
+     * Signal numbers that are the same on all POSIX systems. <br>
+     * Signal 0 sends nothing, but still checks if the process exists and may be signalled. <br>
+     */
+    public static final int SIGHUP = 1, SIGINT = 2, SIGKILL = 9, SIGTERM = 15;
+    /**
+     * Values for the which argument of setpriority(2), the same on all POSIX systems.
+     */
+    public static final int PRIO_PROCESS = 0, PRIO_PGRP = 1, PRIO_USER = 2;
+    /**
+     * Linux syscall number of pidfd_open(2), the same on all architectures, available since kernel 5.3.
+     */
+    public static final int SYS_PIDFD_OPEN = 434;
+    /**
+     * Linux values for epoll(7) and eventfd(2).
+     */
+    public static final int EPOLL_CTL_ADD = 1, EPOLL_CTL_DEL = 2, EPOLLIN = 0x001, EPOLL_CLOEXEC = 0x80000,
+            EFD_CLOEXEC = 0x80000;
+    /**
+     * Linux errno values.
+     */
+    public static final int EPERM = 1, ESRCH = 3, EINTR = 4, ENOSYS = 38;
+
+    /**
+     * Size of struct epoll_event, which is packed on x86 (uint32 events followed directly by uint64 data),
+     * but aligned on other architectures.
+     */
+    public static final int EPOLL_EVENT_SIZE = Platform.isIntel() ? 12 : 16;
+    /**
+     * Offset of the data field in struct epoll_event, see {@link LibC#EPOLL_EVENT_SIZE}.
+     */
+    public static final int EPOLL_EVENT_DATA_OFFSET = Platform.isIntel() ? 4 : 8;
+
+    /**
+     * Null if the C library couldn't be loaded.
+     */
+    public static final Lib INSTANCE = load();
+
+    private static Lib load() {
+        if (OS.isWindows) return null;
+        try {
+            return Native.load("c", Lib.class);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return INSTANCE != null;
+    }
+
+    /**
+     * Returns the value of sysconf(name), or the provided default
+     * if the C library is not available or the value couldn't be determined.
+     */
+    public static long sysconf(int name, long def) {
+        if (INSTANCE == null) return def;
+        try {
+            long value = INSTANCE.sysconf(name).longValue();
+            return value > 0 ? value : def;
+        } catch (Throwable e) {
+            return def;
+        }
+    }
+
+    /**
+     * Sends the signal to the process via kill(2).
+     *
+     * @return 0 on success, otherwise the errno, for example 1 (EPERM) or 3 (ESRCH, no such process).
+     * @throws UnsupportedOperationException if the C library is not available.
+     */
+    public static int kill(int pid, int signal) {
+        if (INSTANCE == null) throw new UnsupportedOperationException("C library not available");
+        try {
+            INSTANCE.kill(pid, signal);
+            return 0;
+        } catch (LastErrorException e) {
+            return e.getErrorCode();
+        }
+    }
+
+    /**
+     * Sets the nice value via setpriority(2).
+     *
+     * @param which {@link #PRIO_PROCESS}, {@link #PRIO_PGRP} or {@link #PRIO_USER}.
+     * @param who   the process id, process group id or user id.
+     * @return 0 on success, otherwise the errno, for example 13 (EACCES) when lowering the nice value without privileges.
+     * @throws UnsupportedOperationException if the C library is not available.
+     */
+    public static int setpriority(int which, int who, int priority) {
+        if (INSTANCE == null) throw new UnsupportedOperationException("C library not available");
+        try {
+            INSTANCE.setpriority(which, who, priority);
+            return 0;
+        } catch (LastErrorException e) {
+            return e.getErrorCode();
+        }
+    }
+
+    /**
+     * Returns the description of the errno, for example "No such process" for 3.
+     */
+    public static String strerror(int errno) {
+        if (INSTANCE != null) {
+            try {
+                return INSTANCE.strerror(errno);
+            } catch (Throwable ignored) {
+            }
+        }
+        return "errno " + errno;
+    }
+
+    public interface Lib extends Library {
+        NativeLong sysconf(int name);
+
+        int kill(int pid, int signal) throws LastErrorException;
+
+        int setpriority(int which, int who, int priority) throws LastErrorException;
+
+        String strerror(int errno);
+
+        int getpid();
+
+        NativeLong syscall(NativeLong number, Object... args) throws LastErrorException;
+
+        int close(int fd) throws LastErrorException;
+
+        NativeLong read(int fd, Pointer buffer, NativeLong count) throws LastErrorException;
+
+        NativeLong write(int fd, Pointer buffer, NativeLong count) throws LastErrorException;
+
+        int eventfd(int initialValue, int flags) throws LastErrorException;
+
+        int epoll_create1(int flags) throws LastErrorException;
+
+        /**
+         * @param event struct epoll_event, see {@link LibC#EPOLL_EVENT_SIZE}.
+         */
+        int epoll_ctl(int epfd, int op, int fd, Pointer event) throws LastErrorException;
+
+        int epoll_wait(int epfd, Pointer events, int maxEvents, int timeoutMillis) throws LastErrorException;
+    }
+}
@@ -0,0 +1,277 @@
+package com.osiris.jprocesses2.util;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counters and histograms about what this library costs, like how long fetching the processes takes
+ * and how many commands get started. <br>
+ * Disabled by default, set {@link #enabled} to true to start recording. While disabled, each instrumented
+ * method only reads that flag, thus has no measurable overhead. <br>
+ * The values are available via {@link #getCount(Counter)} and {@link #getHistogram(Histogram)},
+ * pushed to listeners added via {@link #addListener(Listener)} and published via JMX
+ * after calling {@link #registerMBean()}. <br>
+ */
+public class Metrics {
+    public static final String OBJECT_NAME = "com.osiris.jprocesses2:type=Metrics";
+    private static final int BUCKETS = 65; // Bucket i contains values with i significant bits
+    private static final AtomicLongArray COUNTS = new AtomicLongArray(Counter.values().length);
+    private static final HistogramData[] HISTOGRAMS = new HistogramData[Histogram.values().length];
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    public static volatile boolean enabled;
+
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new HistogramData();
+        }
+    }
+
+    public enum Counter {
+        /**
+         * Processes started by this library, including the commands for fetching.
+         */
+        FORKS,
+        /**
+         * Fetches of all processes.
+         */
+        FETCHES,
+        /**
+         * Lines or values of command output that couldn't be parsed.
+         */
+        PARSE_FAILURES,
+        /**
+         * Commands terminated because they didn't exit before their deadline.
+         */
+        COMMAND_TIMEOUTS,
+        SIGNALS_SENT,
+        SIGNALS_FAILED,
+        PRIORITY_CHANGES,
+        PRIORITY_CHANGES_FAILED
+    }
+
+    public enum Histogram {
+        /**
+         * Total time for fetching all processes, in nanoseconds.
+         */
+        FETCH_NANOS,
+        /**
+         * Time for starting the command of a fetch, in nanoseconds.
+         */
+        FETCH_SPAWN_NANOS,
+        /**
+         * Time spent waiting for and reading the raw data of a fetch, from the command output or /proc, in nanoseconds.
+         */
+        FETCH_READ_NANOS,
+        /**
+         * Time spent parsing the raw data of a fetch, in nanoseconds.
+         */
+        FETCH_PARSE_NANOS,
+        /**
+         * Time for setting the parent/child relations after a fetch, in nanoseconds.
+         */
+        FETCH_LINK_NANOS,
+        /**
+         * Time from starting a command until it finished, in nanoseconds.
+         */
+        COMMAND_NANOS,
+        /**
+         * Amount of processes per fetch.
+         */
+        PROCESSES_PER_FETCH
+    }
+
+    public interface Listener {
+        /**
+         * Gets called on the recording thread each time a counter gets increased, thus should return fast.
+         */
+        void onCount(Counter counter, long delta);
+
+        /**
+         * Gets called on the recording thread each time a value gets recorded, thus should return fast.
+         */
+        void onRecord(Histogram histogram, long value);
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public static void increment(Counter counter) {
+        add(counter, 1);
+    }
+
+    public static void add(Counter counter, long delta) {
+        if (!enabled) return;
+        COUNTS.addAndGet(counter.ordinal(), delta);
+        for (Listener listener : listeners) {
+            try {
+                listener.onCount(counter, delta);
+            } catch (Exception e) {
+                Logger.getLogger(Metrics.class.getName()).log(Level.SEVERE, "Error in listener", e);
+            }
+        }
+    }
+
+    public static void record(Histogram histogram, long value) {
+        if (!enabled) return;
+        HISTOGRAMS[histogram.ordinal()].record(value);
+        for (Listener listener : listeners) {
+            try {
+                listener.onRecord(histogram, value);
+            } catch (Exception e) {
+                Logger.getLogger(Metrics.class.getName()).log(Level.SEVERE, "Error in listener", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the current {@link System#nanoTime()} if enabled, otherwise 0. <br>
+     * Pass it to {@link #stop(Histogram, long)} to record the elapsed time. <br>
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the nanoseconds elapsed since the provided {@link #start()}, does nothing if that was 0.
+     */
+    public static void stop(Histogram histogram, long startNanos) {
+        if (startNanos != 0) record(histogram, System.nanoTime() - startNanos);
+    }
+
+    public static long getCount(Counter counter) {
+        return COUNTS.get(counter.ordinal());
+    }
+
+    public static HistogramSnapshot getHistogram(Histogram histogram) {
+        return HISTOGRAMS[histogram.ordinal()].snapshot();
+    }
+
+    /**
+     * Sets all counters and histograms to 0.
+     */
+    public static void reset() {
+        for (int i = 0; i < COUNTS.length(); i++) {
+            COUNTS.set(i, 0);
+        }
+        for (HistogramData histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Publishes the metrics via JMX under {@link #OBJECT_NAME}, does nothing if already registered.
+     */
+    public static synchronized void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) server.registerMBean(new MBean(), name);
+    }
+
+    public static synchronized void unregisterMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) server.unregisterMBean(name);
+    }
+
+    private static class MBean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            Metrics.enabled = enabled;
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            Map<String, Long> map = new LinkedHashMap<>();
+            for (Counter counter : Counter.values()) {
+                map.put(counter.name(), getCount(counter));
+            }
+            return map;
+        }
+
+        @Override
+        public Map<String, HistogramSnapshot> getHistograms() {
+            Map<String, HistogramSnapshot> map = new LinkedHashMap<>();
+            for (Histogram histogram : Histogram.values()) {
+                map.put(histogram.name(), getHistogram(histogram));
+            }
+            return map;
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+
+    /**
+     * Lock-free histogram with power of two buckets, thus percentiles are accurate to a factor of 2.
+     */
+    private static class HistogramData {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        final AtomicLongArray stats = new AtomicLongArray(3); // Count, sum, max
+
+        void record(long value) {
+            if (value < 0) value = 0;
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            stats.incrementAndGet(0);
+            stats.addAndGet(1, value);
+            while (true) {
+                long max = stats.get(2);
+                if (value <= max || stats.compareAndSet(2, max, value)) break;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            for (int i = 0; i < 3; i++) {
+                stats.set(i, 0);
+            }
+        }
+
+        HistogramSnapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long max = stats.get(2);
+            return new HistogramSnapshot(stats.get(0), stats.get(1), max,
+                    percentile(counts, total, 0.5, max), percentile(counts, total, 0.9, max),
+                    percentile(counts, total, 0.99, max));
+        }
+
+        /**
+         * Returns the upper bound of the bucket containing the percentile, but at most the maximum.
+         */
+        private static long percentile(long[] counts, long total, double percentile, long max) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return i == 0 ? 0 : Math.min(max, i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+            }
+            return max;
+        }
+    }
+}
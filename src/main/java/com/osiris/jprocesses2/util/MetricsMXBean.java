@@ -0,0 +1,24 @@
+package com.osiris.jprocesses2.util;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}, see {@link Metrics#registerMBean()}.
+ */
+public interface MetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the {@link Metrics.Counter} names mapped to their values.
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Returns the {@link Metrics.Histogram} names mapped to their current values.
+     */
+    Map<String, HistogramSnapshot> getHistograms();
+
+    void reset();
+}
@@ -22,6 +22,7 @@ package com.osiris.jprocesses2.util;
 public class NativeResult {
     private boolean success;
     private String message;
+    private int errno;
 
     public boolean isSuccess() {
         return success;
@@ -39,5 +40,17 @@ public class NativeResult {
         this.message = message;
     }
 
+    /**
+     * The error number reported by the native call, or 0 if it succeeded or none is available,
+     * for example when the result comes from an external command.
+     */
+    public int getErrno() {
+        return errno;
+    }
+
+    public void setErrno(int errno) {
+        this.errno = errno;
+    }
+
 
 }
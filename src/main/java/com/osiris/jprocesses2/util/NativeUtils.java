@@ -15,11 +15,10 @@
  */
 package com.osiris.jprocesses2.util;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.text.DateFormat;
 import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.logging.Level;
@@ -32,71 +31,85 @@ import java.util.logging.Logger;
  */
 @SuppressWarnings("Since15")
 public class NativeUtils {
+    private static final String[] UNIX_DATE_PATTERNS = {"MMM dd HH:mm:ss yyyy", "dd MMM HH:mm:ss yyyy"};
+    /**
+     * SimpleDateFormat is not thread-safe, thus each thread gets its own formatters,
+     * one for each combination of default locale and pattern.
+     */
+    private static final ThreadLocal<DateFormat[]> UNIX_DATE_FORMATS = new ThreadLocal<DateFormat[]>() {
+        @Override
+        protected DateFormat[] initialValue() {
+            Locale[] locales = getDefaultLocales();
+            DateFormat[] formats = new DateFormat[locales.length * UNIX_DATE_PATTERNS.length];
+            int i = 0;
+            for (Locale locale : locales) {
+                for (String pattern : UNIX_DATE_PATTERNS) {
+                    formats[i++] = new SimpleDateFormat(pattern, locale);
+                }
+            }
+            return formats;
+        }
+    };
+    private static final ThreadLocal<DateFormat> WINDOWS_DATE_FORMAT = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
+        }
+    };
+    /**
+     * Index of the formatter in {@link #UNIX_DATE_FORMATS} that parsed the last date.
+     */
+    private static volatile int lastUnixDateFormat;
 
     private final String CRLF = "\r\n";
+    /**
+     * Runs the commands of {@link #executeCommand(String...)} and {@link #executeCommandAndGetCode(String...)}.
+     */
+    public CommandExecutor executor = new CommandExecutor();
     private String customDateFormat;
     private Locale customLocale;
 
+    /**
+     * Runs the command via {@link #executor} and returns its standard output followed by its standard error,
+     * without empty lines. Returns an empty string if the command couldn't be started.
+     */
     public String executeCommand(String... command) {
-        String commandOutput = null;
-
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            processBuilder.redirectErrorStream(true); // redirect error stream to output stream
-
-            commandOutput = readData(processBuilder.start());
+            CommandExecutor.Result result = executor.execute(command);
+            if (result.timedOut)
+                Logger.getLogger(NativeUtils.class.getName()).log(Level.SEVERE, "Command timed out: " + Arrays.toString(command));
+            StringBuilder commandOutput = new StringBuilder();
+            appendLines(commandOutput, result.getOutput());
+            appendLines(commandOutput, result.getError());
+            return commandOutput.toString();
         } catch (IOException ex) {
-            commandOutput = "";
             Logger.getLogger(NativeUtils.class.getName()).log(Level.SEVERE, "Error executing command", ex);
-            ex.printStackTrace();
+            return "";
         }
-
-        return commandOutput;
     }
 
-    private String readData(Process process) {
-        StringBuilder commandOutput = new StringBuilder();
-        BufferedReader processOutput = null;
-
-        try {
-            processOutput = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-            String line;
-            while ((line = processOutput.readLine()) != null) {
-                if (!line.isEmpty()) {
-                    commandOutput.append(line).append(CRLF);
-                }
-            }
-        } catch (IOException ex) {
-            Logger.getLogger(NativeUtils.class.getName()).log(Level.SEVERE, "Error reading data", ex);
-        } finally {
-            try {
-                if (processOutput != null) {
-                    processOutput.close();
-                }
-            } catch (IOException ioe) {
-                Logger.getLogger(NativeUtils.class.getName()).log(Level.SEVERE, "Error closing reader", ioe);
-            }
+    private void appendLines(StringBuilder sb, String text) {
+        for (String line : text.split("\r?\n")) {
+            if (!line.isEmpty()) sb.append(line).append(CRLF);
         }
-
-        return commandOutput.toString();
     }
 
+    /**
+     * Runs the command via {@link #executor} and returns its exit code,
+     * or -1 if it couldn't be started or timed out.
+     */
     public int executeCommandAndGetCode(String... command) {
-        Process process;
-
         try {
-            process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            CommandExecutor.Result result = executor.execute(command);
+            if (result.timedOut) {
+                Logger.getLogger(NativeUtils.class.getName()).log(Level.SEVERE, "Command timed out: " + Arrays.toString(command));
+                return -1;
+            }
+            return result.exitCode;
         } catch (IOException ex) {
             Logger.getLogger(NativeUtils.class.getName()).log(Level.SEVERE, null, ex);
             return -1;
-        } catch (InterruptedException ex) {
-            Logger.getLogger(NativeUtils.class.getName()).log(Level.SEVERE, null, ex);
-            return -1;
         }
-
-        return process.exitValue();
     }
 
     /**
@@ -140,48 +153,100 @@ public class NativeUtils {
             returnedDate = month + "/" + day + "/" + year + " " + hour + ":"
                     + minutes + ":" + seconds;
         }
-        DateFormat targetFormat = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
-        return targetFormat.parse(returnedDate);
+        try {
+            return WINDOWS_DATE_FORMAT.get().parse(returnedDate);
+        } catch (ParseException e) {
+            Metrics.increment(Metrics.Counter.PARSE_FAILURES);
+            throw e;
+        }
         //return returnedDate;
     }
 
     /**
      * Parse Unix long date format(ex: Fri Jun 10 04:35:36 2016) to format
-     * MM/dd/yyyy HH:mm:ss
+     * MM/dd/yyyy HH:mm:ss <br>
+     * A leading day of the week gets removed, see {@link #setCustomDateFormat(String)}. <br>
+     * The formatters are cached per thread and the format/locale pair that succeeded last is tried first,
+     * thus parsing many dates in the same format is fast. <br>
      *
      * @param longFormatDate original datetime format
      * @return string with formatted date and time (mm/dd/yyyy HH:mm:ss)
      */
     public Date parseUnixLongTimeToFullDate(String longFormatDate) throws ParseException {
-        DateFormat targetFormat = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
-        List<String> formatsToTry = new ArrayList<String>();
-        formatsToTry.addAll(Arrays.asList("MMM dd HH:mm:ss yyyy", "dd MMM HH:mm:ss yyyy"));
-        List<Locale> localesToTry = new ArrayList<Locale>();
-        localesToTry.addAll(Arrays.asList(
-                Locale.getDefault(),
-                Locale.getDefault(Locale.Category.FORMAT),
-                Locale.ENGLISH)
-        );
+        String date = removeDayOfWeek(longFormatDate);
+        if (getCustomDateFormat() != null || getCustomLocale() != null) {
+            Date parsed = parseWithCustomFormat(date);
+            if (parsed != null) return parsed;
+        }
+        DateFormat[] formats = UNIX_DATE_FORMATS.get();
+        int last = lastUnixDateFormat;
+        Date parsed = tryParse(formats[last], date);
+        if (parsed != null) return parsed;
+        for (int i = 0; i < formats.length; i++) {
+            if (i == last) continue;
+            parsed = tryParse(formats[i], date);
+            if (parsed != null) {
+                lastUnixDateFormat = i;
+                return parsed;
+            }
+        }
+        Metrics.increment(Metrics.Counter.PARSE_FAILURES);
+        throw new ParseException("Unparseable date: \"" + longFormatDate + "\"", 0);
+    }
+
+    /**
+     * Tries all combinations containing the custom format or locale, which are not cached.
+     */
+    private Date parseWithCustomFormat(String date) {
+        List<String> formatsToTry = new ArrayList<String>(Arrays.asList(UNIX_DATE_PATTERNS));
+        List<Locale> localesToTry = new ArrayList<Locale>(Arrays.asList(getDefaultLocales()));
         if (getCustomDateFormat() != null) {
             formatsToTry.add(0, getCustomDateFormat());
         }
         if (getCustomLocale() != null) {
             localesToTry.add(0, getCustomLocale());
         }
-
-        ParseException lastException = null;
         for (Locale locale : localesToTry) {
             for (String format : formatsToTry) {
-                DateFormat originalFormat = new SimpleDateFormat(format, locale);
-                try {
-                    return originalFormat.parse(longFormatDate);
-                    //return targetFormat.format(originalFormat.parse(longFormatDate));
-                } catch (ParseException ex) {
-                    lastException = ex;
-                }
+                if (!format.equals(getCustomDateFormat()) && !locale.equals(getCustomLocale())) continue; // Cached
+                Date parsed = tryParse(new SimpleDateFormat(format, locale), date);
+                if (parsed != null) return parsed;
             }
         }
-        throw lastException;
+        return null;
+    }
+
+    /**
+     * Returns the parsed date, or null if it couldn't be parsed, without throwing an exception.
+     */
+    private static Date tryParse(DateFormat format, String date) {
+        ParsePosition position = new ParsePosition(0);
+        Date parsed = format.parse(date, position);
+        return position.getIndex() == 0 ? null : parsed;
+    }
+
+    /**
+     * ps prints 5 space separated fields, for example <code>Fri Jun 10 04:35:36 2016</code>,
+     * where the first one is the day of the week, which gets removed.
+     * Multiple spaces (like in <code>Jun  1</code>) are replaced by one.
+     */
+    private static String removeDayOfWeek(String date) {
+        StringBuilder sb = new StringBuilder(date.length());
+        int tokens = 0, firstTokenEnd = 0;
+        int i = 0, length = date.length();
+        while (i < length) {
+            while (i < length && Character.isWhitespace(date.charAt(i))) i++;
+            if (i == length) break;
+            if (tokens != 0) sb.append(' ');
+            while (i < length && !Character.isWhitespace(date.charAt(i))) sb.append(date.charAt(i++));
+            tokens++;
+            if (tokens == 1) firstTokenEnd = sb.length();
+        }
+        return tokens == 5 ? sb.substring(firstTokenEnd + 1) : sb.toString();
+    }
+
+    private static Locale[] getDefaultLocales() {
+        return new Locale[]{Locale.getDefault(), Locale.getDefault(Locale.Category.FORMAT), Locale.ENGLISH};
     }
 
     public String getCustomDateFormat() {
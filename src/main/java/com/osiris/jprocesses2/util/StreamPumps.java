@@ -0,0 +1,203 @@
+package com.osiris.jprocesses2.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Drains the output streams of started processes on a small shared pool of threads,
+ * instead of one thread per stream. <br>
+ * Process pipes can't be registered with a selector like sockets, thus each pump thread checks its streams
+ * via {@link InputStream#available()} and only reads what is available, never blocking on a single stream.
+ * Idle threads back off up to {@link #MAX_IDLE_MILLIS} between checks. <br>
+ * Each thread reuses one buffer of {@link #BUFFER_SIZE} bytes for all its streams, thus memory stays bounded
+ * regardless of how much the processes write. <br>
+ * A stream ends once it's empty after its process exited. Output written afterwards by other processes
+ * sharing the pipe, like daemonized grandchildren, is not pumped. <br>
+ */
+public class StreamPumps {
+    public static final int BUFFER_SIZE = 8192;
+    public static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    public static final long MAX_IDLE_MILLIS = 10;
+    private static final Worker[] workers = new Worker[THREADS];
+    private static int nextWorker;
+
+    /**
+     * Copies the process output into the provided stream.
+     *
+     * @param process  the process writing to the input, used to detect the end of the input.
+     * @param in       the standard output or error of the process, gets closed at the end.
+     * @param out      receives the output. Gets written from a pump thread, thus should not block for long.
+     * @param closeOut if true, the output gets closed at the end.
+     * @return completes with the amount of copied bytes once the input ended, cancel it to stop copying.
+     */
+    public static Future<Long> pump(Process process, InputStream in, OutputStream out, boolean closeOut) {
+        return start(new Pump(process, in, Channels.newChannel(out), closeOut));
+    }
+
+    /**
+     * Same as {@link #pump(Process, InputStream, OutputStream, boolean)}, but writes the reused buffer directly
+     * to the provided blocking channel, for example a {@link java.nio.channels.FileChannel}, without copying it.
+     */
+    public static Future<Long> pump(Process process, InputStream in, WritableByteChannel out, boolean closeOut) {
+        return start(new Pump(process, in, out, closeOut));
+    }
+
+    /**
+     * Reads and discards the process output, so that the process can't block because of a full pipe.
+     */
+    public static Future<Long> discard(Process process, InputStream in) {
+        return start(new Pump(process, in, null, false));
+    }
+
+    private static synchronized Future<Long> start(Pump pump) {
+        // Round-robin, thus the streams of one process get drained by different threads
+        int i = nextWorker;
+        nextWorker = (nextWorker + 1) % THREADS;
+        if (workers[i] == null) {
+            workers[i] = new Worker(i);
+            workers[i].start();
+        }
+        workers[i].add(pump);
+        return pump;
+    }
+
+    private static class Pump extends FutureTask<Long> {
+        private static final Callable<Long> NOTHING = new Callable<Long>() {
+            @Override
+            public Long call() {
+                return null;
+            }
+        };
+        final Process process;
+        final InputStream in;
+        final WritableByteChannel out;
+        final boolean closeOut;
+        long count;
+
+        Pump(Process process, InputStream in, WritableByteChannel out, boolean closeOut) {
+            super(NOTHING);
+            this.process = process;
+            this.in = in;
+            this.out = out;
+            this.closeOut = closeOut;
+        }
+
+        boolean hasExited() {
+            try {
+                process.exitValue();
+                return true;
+            } catch (IllegalThreadStateException e) {
+                return false;
+            }
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+            if (closeOut) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        void finish(IOException e) {
+            close();
+            if (e != null) setException(e);
+            else set(count);
+        }
+    }
+
+    private static class Worker extends Thread {
+        final ConcurrentLinkedQueue<Pump> added = new ConcurrentLinkedQueue<>();
+        final List<Pump> pumps = new ArrayList<>();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+
+        Worker(int index) {
+            super("jProcesses2-pump-" + index);
+            setDaemon(true);
+        }
+
+        void add(Pump pump) {
+            added.add(pump);
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void run() {
+            long idleMillis = 1;
+            while (true) {
+                Pump pump;
+                while ((pump = added.poll()) != null) {
+                    pumps.add(pump);
+                }
+                boolean progress = false;
+                for (Iterator<Pump> it = pumps.iterator(); it.hasNext(); ) {
+                    pump = it.next();
+                    if (pump.isDone()) { // Cancelled
+                        pump.close();
+                        it.remove();
+                        continue;
+                    }
+                    try {
+                        int available = pump.in.available();
+                        if (available > 0) {
+                            int read = pump.in.read(buffer, 0, Math.min(available, buffer.length));
+                            if (read == -1) {
+                                pump.finish(null);
+                                it.remove();
+                                continue;
+                            }
+                            if (pump.out != null) {
+                                Buffer view = byteBuffer; // Buffer methods, since ByteBuffer overrides them only since Java 9
+                                view.clear();
+                                view.limit(read);
+                                while (byteBuffer.hasRemaining()) {
+                                    pump.out.write(byteBuffer);
+                                }
+                            }
+                            pump.count += read;
+                            progress = true;
+                        } else if (pump.hasExited() && pump.in.available() == 0) { // Nothing more will be written
+                            pump.finish(null);
+                            it.remove();
+                        }
+                    } catch (IOException e) {
+                        pump.finish(e);
+                        it.remove();
+                    }
+                }
+                try {
+                    if (progress) idleMillis = 1;
+                    else synchronized (this) {
+                        if (pumps.isEmpty() && added.isEmpty()) wait();
+                        else {
+                            wait(idleMillis);
+                            idleMillis = Math.min(idleMillis * 2, MAX_IDLE_MILLIS);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.OS;
+import junit.framework.TestCase;
+
+public class CpuSamplerTest extends TestCase {
+
+    public void testSample() throws Exception {
+        if (!OS.isLinux || !LinuxProcessSource.isSupported()) return;
+        JProcess thisProcess = new ProcessUtils().getThis();
+        CpuSampler sampler = new CpuSampler();
+        sampler.sample();
+        assertEquals(-1.0, sampler.getCpuUsage(thisProcess.pid));
+        long end = System.currentTimeMillis() + 300;
+        long sum = 0;
+        while (System.currentTimeMillis() < end) sum += System.nanoTime() % 7; // Busy
+        sampler.sample();
+        assertTrue(sum > 0);
+        assertTrue(sampler.size() > 0);
+        assertTrue(sampler.getCpuUsage(thisProcess.pid) > 0);
+        assertTrue(thisProcess.getExtraInfo(sampler).cpuUsage > 0);
+        int[] top = sampler.topByCpuUsage(3);
+        assertTrue(top.length > 0);
+        for (int i = 1; i < top.length; i++) {
+            assertTrue(sampler.getCpuUsage(top[i - 1]) >= sampler.getCpuUsage(top[i]));
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.osiris.jprocesses2;
 
+import com.osiris.jprocesses2.util.OS;
 import junit.framework.TestCase;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
 
 public class JProcessExtraTest extends TestCase {
     ProcessUtils processUtils = new ProcessUtils();
@@ -12,4 +15,40 @@ public class JProcessExtraTest extends TestCase {
         assertNotNull(processUtils.getThis().getExtraInfo().minorPageFaults);
     }
 
-}
\ No newline at end of file
+    public void testBatchExtraInfo() throws IOException, InterruptedException {
+        JProcess thisProcess = processUtils.getThis();
+        JProcess gone = new JProcess();
+        gone.pid = "999999999";
+        Map<String, JProcessExtra> extras = processUtils.getExtraInfo(Arrays.asList(thisProcess, gone));
+        assertEquals(2, extras.size());
+        JProcessExtra extra = extras.get(thisProcess.pid);
+        assertTrue(extra.isAlive);
+        assertTrue(Integer.parseInt(extra.threadCount) > 1); // The JVM has many threads
+        assertTrue(Long.parseLong(extra.minorPageFaults) > 0);
+        assertFalse(extras.get(gone.pid).isAlive);
+        assertNull(extras.get(gone.pid).threadCount);
+    }
+
+    public void testLinuxExtraInfo() throws IOException, InterruptedException {
+        if (!LinuxProcessSource.isSupported()) return;
+        String pid = processUtils.getThis().pid;
+        JProcessExtra extra = new LinuxProcessSource().fetchExtraInfo(Arrays.asList(pid)).get(pid);
+        assertTrue(extra.majorPageFaults >= 0);
+        assertTrue(extra.voluntaryContextSwitches > 0);
+        assertTrue(extra.involuntaryContextSwitches >= 0);
+        assertTrue(extra.readBytes >= 0);
+        assertTrue(extra.writeBytes >= 0);
+        assertTrue(extra.openFileDescriptors >= 3); // At least stdin, stdout and stderr
+    }
+
+    public void testBatchExtraInfoPs() throws IOException, InterruptedException {
+        if (OS.isWindows) return;
+        String pid = processUtils.getThis().pid;
+        Map<String, JProcessExtra> extras = new UnixProcessSource().fetchExtraInfo(Arrays.asList(pid, "1", "999999999"));
+        assertEquals(3, extras.size());
+        assertTrue(extras.get(pid).isAlive);
+        assertTrue(Integer.parseInt(extras.get(pid).threadCount) > 1);
+        assertTrue(extras.get("1").isAlive);
+        assertFalse(extras.get("999999999").isAlive);
+    }
+}
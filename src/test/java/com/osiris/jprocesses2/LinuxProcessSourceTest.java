@@ -0,0 +1,26 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.OS;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+
+public class LinuxProcessSourceTest extends TestCase {
+
+    public void testFetchAll() throws IOException, ParseException {
+        if (!OS.isLinux || !LinuxProcessSource.isSupported()) return;
+        ProcessUtils processUtils = new ProcessUtils(new LinuxProcessSource());
+        List<JProcess> list = processUtils.getProcesses();
+        assertTrue(list.size() > 0);
+        JProcess thisProcess = processUtils.getThis(list);
+        assertNotNull(thisProcess);
+        assertNotNull(thisProcess.name);
+        assertNotNull(thisProcess.username);
+        assertNotNull(thisProcess.parentPid);
+        assertTrue(thisProcess.command.contains("java"));
+        assertTrue(Long.parseLong(thisProcess.usedMemoryInKB) > 0);
+        assertNotNull(thisProcess.timestampStart);
+    }
+}
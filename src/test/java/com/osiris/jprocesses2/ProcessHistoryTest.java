@@ -0,0 +1,74 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.OS;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ProcessHistoryTest extends TestCase {
+
+    private static ProcessTable table(long timestamp, long memoryOf1, long memoryOf2, long startTimeOf2) {
+        return new ProcessTable.Builder()
+                .timestamp(timestamp)
+                .add(1, 0, memoryOf1, -1, 100, 0, "init", "root", null)
+                .add(2, 1, memoryOf2, -1, startTimeOf2, 0, "java", "root", null)
+                .build();
+    }
+
+    public void testRingBuffer() {
+        ProcessHistory history = new ProcessHistory(3);
+        for (int i = 0; i < 5; i++) {
+            history.record(table(i * 1000, 100 + i, 500, 200));
+        }
+        assertEquals(2, history.size());
+        assertEquals(5, history.getSampleCount());
+        assertTrue(Arrays.equals(new long[]{2000, 3000, 4000}, history.getTimestamps(1)));
+        assertTrue(Arrays.equals(new long[]{102, 103, 104}, history.getMemoryInKB(1)));
+        assertTrue(Arrays.equals(new double[]{-1, -1, -1}, history.getCpuUsage(1)));
+        assertEquals(0, history.getMemoryInKB(3).length);
+    }
+
+    public void testReusedPidStartsNewHistory() {
+        ProcessHistory history = new ProcessHistory(10);
+        history.record(table(0, 100, 500, 200));
+        history.record(table(1000, 100, 600, 200));
+        history.record(table(2000, 100, 50, 300)); // Pid 2 was reused
+        assertTrue(Arrays.equals(new long[]{50}, history.getMemoryInKB(2)));
+        assertEquals(Long.MIN_VALUE, history.getMemoryGrowth(2, 10000));
+        history.record(new ProcessTable.Builder().timestamp(3000).add(1, 0, 100, -1, 100, 0, "init", "root", null).build());
+        assertEquals(1, history.size()); // Pid 2 exited
+    }
+
+    public void testFastestMemoryGrowth() {
+        ProcessHistory history = new ProcessHistory(100);
+        for (int i = 0; i < 10; i++) {
+            // Pid 1 grows by 10 KB per second, pid 2 only grew before the last 3 seconds
+            history.record(table(i * 1000, 100 + i * 10, i < 6 ? i * 1000 : 6000, 200));
+        }
+        assertEquals(90, history.getMemoryGrowth(1, 60000));
+        assertEquals(30, history.getMemoryGrowth(1, 3000));
+        assertEquals(6000, history.getMemoryGrowth(2, 60000));
+        assertEquals(0, history.getMemoryGrowth(2, 3000));
+        assertTrue(Arrays.equals(new int[]{2, 1}, history.getFastestMemoryGrowth(60000, 5)));
+        assertTrue(Arrays.equals(new int[]{2}, history.getFastestMemoryGrowth(60000, 1)));
+        assertTrue(Arrays.equals(new int[]{1}, history.getFastestMemoryGrowth(3000, 5)));
+        assertEquals(0, history.getFastestMemoryGrowth(60000, 0).length);
+    }
+
+    public void testRecordWithCpuSampler() throws IOException {
+        if (!OS.isLinux || !LinuxProcessSource.isSupported()) return;
+        CpuSampler sampler = new CpuSampler();
+        ProcessUtils processUtils = new ProcessUtils();
+        ProcessHistory history = new ProcessHistory(10);
+        for (int i = 0; i < 2; i++) {
+            sampler.sample();
+            history.record(processUtils.getProcessTable(), sampler);
+        }
+        int pid = Integer.parseInt(ProcessUtils.getThisPID());
+        assertEquals(2, history.getMemoryInKB(pid).length);
+        assertTrue(history.getMemoryInKB(pid)[1] > 0);
+        assertEquals(-1.0, history.getCpuUsage(pid)[0]);
+        assertTrue(history.getCpuUsage(pid)[1] >= 0);
+    }
+}
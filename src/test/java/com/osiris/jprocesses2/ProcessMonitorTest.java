@@ -0,0 +1,38 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.OS;
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ProcessMonitorTest extends TestCase {
+
+    public void testStartedAndExited() throws Exception {
+        if (OS.isWindows) return;
+        final CountDownLatch started = new CountDownLatch(1), exited = new CountDownLatch(1);
+        final String command = "sleep 2.345";
+        ProcessMonitor monitor = new ProcessMonitor(100);
+        monitor.addListener(new ProcessMonitor.Listener() {
+            @Override
+            public void onChange(ProcessSnapshotDiff diff) {
+                for (JProcess p : diff.started) {
+                    if (command.equals(p.command)) started.countDown();
+                }
+                for (JProcess p : diff.exited) {
+                    if (command.equals(p.command)) exited.countDown();
+                }
+            }
+        });
+        monitor.start();
+        try {
+            Thread.sleep(300); // Wait for the baseline snapshot
+            Process process = new ProcessBuilder("sleep", "2.345").start();
+            assertTrue(started.await(2, TimeUnit.SECONDS));
+            process.destroy();
+            assertTrue(exited.await(3, TimeUnit.SECONDS));
+        } finally {
+            monitor.stop();
+        }
+    }
+}
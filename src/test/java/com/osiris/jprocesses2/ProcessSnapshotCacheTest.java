@@ -0,0 +1,105 @@
+package com.osiris.jprocesses2;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProcessSnapshotCacheTest extends TestCase {
+
+    /**
+     * Returns a fixed list of processes slowly and counts the fetches.
+     */
+    private static class CountingSource implements ProcessSource {
+        final AtomicInteger fetches = new AtomicInteger();
+
+        @Override
+        public List<JProcess> fetchAll() throws IOException {
+            fetches.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            JProcess p = new JProcess();
+            p.pid = "1";
+            p.parentPid = "0";
+            p.name = "init";
+            return new ArrayList<>(Collections.singletonList(p));
+        }
+
+        @Override
+        public void visit(Set<ProcessField> fields, ProcessVisitor visitor) throws IOException {
+            for (JProcess p : fetchAll()) {
+                if (!visitor.visit(p)) return;
+            }
+        }
+
+        @Override
+        public JProcess fetch(String pid) throws IOException {
+            return null;
+        }
+
+        @Override
+        public Map<String, JProcess> fetch(Collection<String> pids) throws IOException {
+            return new HashMap<>();
+        }
+
+        @Override
+        public Map<String, JProcessExtra> fetchExtraInfo(Collection<String> pids) throws IOException {
+            return new HashMap<>();
+        }
+    }
+
+    public void testSingleFlight() throws Exception {
+        CountingSource source = new CountingSource();
+        final ProcessUtils processUtils = new ProcessUtils(source);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<ProcessSnapshot> results = Collections.synchronizedList(new ArrayList<ProcessSnapshot>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        results.add(processUtils.getSnapshot(60000));
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) t.join();
+
+        assertEquals(10, results.size());
+        assertEquals(1, source.fetches.get());
+        for (ProcessSnapshot snapshot : results) assertSame(results.get(0), snapshot);
+        assertSame(results.get(0), processUtils.getSnapshot(60000));
+        assertEquals(1, source.fetches.get());
+    }
+
+    public void testStaleness() throws IOException {
+        CountingSource source = new CountingSource();
+        ProcessUtils processUtils = new ProcessUtils(source);
+        ProcessSnapshot first = processUtils.getSnapshot(60000);
+        ProcessSnapshot second = processUtils.getSnapshot(0);
+        assertNotSame(first, second);
+        assertEquals(2, source.fetches.get());
+        processUtils.getSnapshotCache().clear();
+        assertNull(processUtils.getSnapshotCache().getCached());
+        processUtils.getSnapshot(60000);
+        assertEquals(3, source.fetches.get());
+    }
+
+    public void testDefaultCacheIsShared() throws IOException {
+        assertSame(new ProcessUtils().getSnapshotCache(), new ProcessUtils().getSnapshotCache());
+        ProcessSnapshot snapshot = new ProcessUtils().getSnapshot(60000);
+        assertSame(snapshot, new ProcessUtils().getSnapshot(60000));
+    }
+}
@@ -0,0 +1,64 @@
+package com.osiris.jprocesses2;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ProcessSnapshotTest extends TestCase {
+
+    private static JProcess process(String pid, String parentPid, String name, String username) {
+        JProcess p = new JProcess();
+        p.pid = pid;
+        p.parentPid = parentPid;
+        p.name = name;
+        p.username = username;
+        p.command = "/bin/" + name;
+        return p;
+    }
+
+    public void testLookups() {
+        ProcessSnapshot snapshot = new ProcessSnapshot(Arrays.asList(
+                process("1", "0", "init", "root"),
+                process("2", "1", "bash", "alice"),
+                process("3", "1", "bash", "bob"),
+                process("4", "2", "java", "alice")));
+        assertEquals(4, snapshot.size());
+        assertEquals("java", snapshot.getByPID("4").name);
+        assertNull(snapshot.getByPID("5"));
+        assertEquals("2", snapshot.getByName("bash").pid);
+        assertEquals(2, snapshot.getAllByName("bash").size());
+        assertEquals("4", snapshot.getByCommand("/bin/java").pid);
+        assertEquals(2, snapshot.getForUser("alice").size());
+        assertEquals(0, snapshot.getForUser("nobody").size());
+        assertEquals(2, snapshot.getByParentPID("1").size());
+    }
+
+    public void testGetSnapshot() throws IOException {
+        ProcessUtils processUtils = new ProcessUtils();
+        ProcessSnapshot snapshot = processUtils.getSnapshot();
+        assertNotNull(processUtils.getThis(snapshot.getProcesses()));
+        JProcess p = snapshot.getProcesses().get(0);
+        assertSame(p, processUtils.getByPID(snapshot, p.pid));
+    }
+
+    public void testDiff() {
+        JProcess init = process("1", "0", "init", "root"), bash = process("2", "1", "bash", "alice"),
+                java = process("3", "1", "java", "alice");
+        init.timestampStart = bash.timestampStart = java.timestampStart = "Mon Jan 01 00:00:00 2024";
+        ProcessSnapshot previous = new ProcessSnapshot(Arrays.asList(init, bash, java));
+
+        JProcess bashChanged = process("2", "1", "bash", "alice");
+        bashChanged.timestampStart = bash.timestampStart;
+        bashChanged.usedMemoryInKB = "1024";
+        JProcess javaReused = process("3", "1", "python", "bob"); // Same pid, but different start time
+        javaReused.timestampStart = "Mon Jan 01 00:00:05 2024";
+        ProcessSnapshot current = new ProcessSnapshot(Arrays.asList(init, bashChanged, javaReused));
+
+        ProcessSnapshotDiff diff = current.diff(previous);
+        assertEquals(Arrays.asList(javaReused), diff.started);
+        assertEquals(Arrays.asList(java), diff.exited);
+        assertEquals(Arrays.asList(bashChanged), diff.changed);
+        assertTrue(current.diff(current).isEmpty());
+    }
+}
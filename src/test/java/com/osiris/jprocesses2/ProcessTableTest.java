@@ -0,0 +1,35 @@
+package com.osiris.jprocesses2;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+
+public class ProcessTableTest extends TestCase {
+
+    public void testBuilder() {
+        ProcessTable table = new ProcessTable.Builder(1)
+                .add(1, 0, 100, 1000, 5000, 0, "init", "root", "/sbin/init")
+                .add(42, 1, 200, 2000, -1, -5, "java", "root", "java -jar app.jar")
+                .build();
+        assertEquals(2, table.size());
+        assertEquals(1, table.indexOf(42));
+        assertEquals(-1, table.indexOf(7));
+        assertEquals(200, table.getMemoryInKB(1));
+        assertEquals(-5, table.getPriority(1));
+        assertSame(table.getUsername(0), table.getUsername(1));
+        JProcess p = table.get(1);
+        assertEquals("42", p.pid);
+        assertEquals("1", p.parentPid);
+        assertEquals("2000", p.usedVirtualMemoryInKB);
+        assertEquals("-5", p.priority);
+        assertNull(p.timestampStart);
+    }
+
+    public void testGetProcessTable() throws IOException {
+        ProcessTable table = new ProcessUtils().getProcessTable();
+        assertTrue(table.size() > 0);
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals(i, table.indexOf(table.getPid(i)));
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package com.osiris.jprocesses2;
 
+import com.osiris.jprocesses2.util.LibC;
+import com.osiris.jprocesses2.util.NativeResult;
+import com.osiris.jprocesses2.util.OS;
 import junit.framework.TestCase;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.*;
 
 public class ProcessUtilsTest extends TestCase {
 
@@ -18,4 +25,283 @@ public class ProcessUtilsTest extends TestCase {
         Thread.sleep(100);
         System.out.println(System.currentTimeMillis());
     }
-}
\ No newline at end of file
+
+    private static List<JProcess> generateProcesses(int count) {
+        List<JProcess> list = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            JProcess p = new JProcess();
+            p.pid = String.valueOf(i);
+            p.parentPid = String.valueOf(i / 2); // Binary tree, pid 1 has the missing parent 0
+            p.name = "p" + i;
+            list.add(p);
+        }
+        return list;
+    }
+
+    public void testSetParentChildProcesses() {
+        List<JProcess> list = generateProcesses(10);
+        JProcess orphan1 = new JProcess(), orphan2 = new JProcess();
+        orphan1.pid = "100";
+        orphan2.pid = "101";
+        orphan1.parentPid = orphan2.parentPid = "99";
+        list.add(orphan1);
+        list.add(orphan2);
+        new ProcessUtils().setParentChildProcesses(list);
+        assertEquals(14, list.size()); // Synthetic parents 0 and 99
+        assertEquals("1", list.get(2).parentProcess.pid);
+        assertEquals(2, list.get(0).childProcesses.size());
+        assertSame(orphan1.parentProcess, orphan2.parentProcess);
+        assertEquals("Unknown", orphan1.parentProcess.name);
+        assertEquals(2, orphan1.parentProcess.childProcesses.size());
+    }
+
+    /**
+     * 10x the processes must take less than 30x the time, a nested loop would take ~100x.
+     */
+    public void testSetParentChildProcessesScalesLinearly() {
+        ProcessUtils processUtils = new ProcessUtils();
+        long small = Long.MAX_VALUE, big = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            List<JProcess> smallList = generateProcesses(20000), bigList = generateProcesses(200000);
+            long start = System.nanoTime();
+            processUtils.setParentChildProcesses(smallList);
+            small = Math.min(small, System.nanoTime() - start);
+            start = System.nanoTime();
+            processUtils.setParentChildProcesses(bigList);
+            big = Math.min(big, System.nanoTime() - start);
+        }
+        System.out.println("setParentChildProcesses: 20k=" + small / 1000000.0 + "ms 200k=" + big / 1000000.0 + "ms");
+        assertTrue(big < small * 30);
+    }
+
+    public void testGetByPID() throws IOException, InterruptedException {
+        ProcessUtils processUtils = new ProcessUtils();
+        String pid = processUtils.getThis().pid;
+        JProcess p = processUtils.getByPID(pid);
+        assertNotNull(p);
+        assertEquals(pid, p.pid);
+        assertNotNull(p.command);
+        assertNull(processUtils.getByPID("999999999"));
+        Map<String, JProcess> map = processUtils.getByPIDs(Arrays.asList(pid, "999999999"));
+        assertEquals(1, map.size());
+        assertEquals(pid, map.get(pid).pid);
+    }
+
+    public void testVisitProcesses() throws IOException {
+        List<ProcessSource> sources = new ArrayList<>();
+        sources.add(ProcessUtils.getDefaultSource());
+        if (!OS.isWindows) sources.add(new UnixProcessSource());
+        for (ProcessSource source : sources) {
+            final List<JProcess> visited = new ArrayList<>();
+            new ProcessUtils(source).visitProcesses(EnumSet.of(ProcessField.MEMORY, ProcessField.COMMAND), new ProcessVisitor() {
+                @Override
+                public boolean visit(JProcess process) {
+                    visited.add(process);
+                    return visited.size() < 3;
+                }
+            });
+            assertEquals(3, visited.size());
+            for (JProcess p : visited) {
+                assertNotNull(p.pid);
+                assertNotNull(p.usedMemoryInKB);
+                assertNotNull(p.command);
+                assertNull(p.name);
+                assertNull(p.username);
+                assertNull(p.timestampStart);
+            }
+        }
+    }
+
+    public void testSignal() throws Exception {
+        if (OS.isWindows) return;
+        ProcessUtils processUtils = new ProcessUtils();
+        List<Process> started = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                started.add(new ProcessBuilder("sleep", "31.7").start());
+            }
+            String thisPid = processUtils.getThis().pid;
+            List<JProcess> sleeps = new ArrayList<>();
+            for (JProcess p : processUtils.getSnapshot().getByParentPID(thisPid)) {
+                if ("sleep 31.7".equals(p.command)) sleeps.add(p);
+            }
+            assertEquals(3, sleeps.size());
+
+            Map<String, NativeResult> results = processUtils.signal(sleeps, LibC.SIGTERM);
+            assertEquals(3, results.size());
+            for (NativeResult result : results.values()) {
+                assertTrue(result.isSuccess());
+            }
+            for (Process process : started) {
+                assertTrue(waitForExit(process, 5000));
+            }
+        } finally {
+            for (Process process : started) process.destroy();
+        }
+    }
+
+    static boolean waitForExit(Process process, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            try {
+                process.exitValue();
+                return true;
+            } catch (IllegalThreadStateException e) {
+                if (System.currentTimeMillis() > deadline) return false;
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    public void testSignalFailure() {
+        if (OS.isWindows || !LibC.isAvailable()) return;
+        JProcess gone = new JProcess();
+        gone.pid = "999999999"; // Above the maximum pid
+        NativeResult result = gone.stop();
+        assertFalse(result.isSuccess());
+        assertEquals(3, result.getErrno()); // ESRCH
+        assertNotNull(result.getMessage());
+
+        JProcess invalid = new JProcess();
+        invalid.pid = "-1";
+        result = invalid.kill();
+        assertFalse(result.isSuccess());
+        assertEquals(0, result.getErrno());
+    }
+
+    public void testChangePriorityTree() throws Exception {
+        if (OS.isWindows) return;
+        ProcessUtils processUtils = new ProcessUtils();
+        Process process = new ProcessBuilder("sh", "-c", "sleep 33.1; true").start();
+        try {
+            Thread.sleep(200); // Wait for the child to start
+            String thisPid = processUtils.getThis().pid;
+            JProcess shell = null;
+            for (JProcess p : processUtils.getProcesses()) {
+                if (thisPid.equals(p.parentPid) && p.command.startsWith("sh -c sleep 33.1")) shell = p;
+            }
+            assertNotNull(shell);
+            assertEquals(1, shell.childProcesses.size());
+
+            Map<String, NativeResult> results = processUtils.changePriorityTree(shell, 7);
+            assertEquals(2, results.size());
+            for (Map.Entry<String, NativeResult> e : results.entrySet()) {
+                assertTrue(e.getValue().isSuccess());
+                assertEquals("7", processUtils.getByPID(e.getKey()).priority);
+            }
+        } finally {
+            process.destroy();
+        }
+    }
+
+    public void testGetUserId() {
+        if (OS.isWindows || !new File("/etc/passwd").exists()) return;
+        assertEquals(0, ProcessUtils.getUserId("root"));
+        assertEquals(12345, ProcessUtils.getUserId("12345"));
+        assertEquals(-1, ProcessUtils.getUserId("no-such-user-x"));
+    }
+
+    private static JProcess findChild(ProcessUtils processUtils, String commandPrefix) throws Exception {
+        String thisPid = processUtils.getThis().pid;
+        for (JProcess p : processUtils.getProcesses()) {
+            if (thisPid.equals(p.parentPid) && p.command.startsWith(commandPrefix)) return p;
+        }
+        return null;
+    }
+
+    public void testStopTree() throws Exception {
+        if (OS.isWindows) return;
+        ProcessUtils processUtils = new ProcessUtils();
+        Process process = new ProcessBuilder("sh", "-c", "sleep 34.2; true").start();
+        try {
+            Thread.sleep(200); // Wait for the child to start
+            JProcess shell = findChild(processUtils, "sh -c sleep 34.2");
+            assertNotNull(shell);
+            JProcess sleep = shell.childProcesses.get(0);
+            assertTrue(processUtils.isAlive(sleep));
+
+            Map<String, StopOutcome> outcomes = processUtils.stopTree(shell, 5000);
+            assertEquals(Arrays.asList(sleep.pid, shell.pid), new ArrayList<>(outcomes.keySet())); // Children first
+            assertEquals(StopOutcome.STOPPED, outcomes.get(sleep.pid));
+            assertEquals(StopOutcome.STOPPED, outcomes.get(shell.pid));
+            assertFalse(processUtils.isAlive(sleep));
+            assertEquals(StopOutcome.ALREADY_EXITED, processUtils.killTree(shell).get(shell.pid));
+        } finally {
+            process.destroy();
+        }
+    }
+
+    public void testStopTreeEscalates() throws Exception {
+        if (OS.isWindows) return;
+        ProcessUtils processUtils = new ProcessUtils();
+        Process process = new ProcessBuilder("sh", "-c", "trap '' TERM; sleep 35.3; true").start();
+        try {
+            Thread.sleep(200);
+            JProcess shell = findChild(processUtils, "sh -c trap");
+            assertNotNull(shell);
+            assertEquals(1, shell.childProcesses.size());
+
+            long start = System.currentTimeMillis();
+            Map<String, StopOutcome> outcomes = processUtils.stopTree(shell, 300);
+            assertTrue(System.currentTimeMillis() - start >= 300);
+            assertEquals(2, outcomes.size());
+            assertEquals(StopOutcome.KILLED, outcomes.get(shell.childProcesses.get(0).pid));
+            // The shell may exit by itself as soon as its child got killed, before being killed too
+            StopOutcome shellOutcome = outcomes.get(shell.pid);
+            assertTrue(shellOutcome == StopOutcome.KILLED || shellOutcome == StopOutcome.STOPPED);
+            assertTrue(waitForExit(process, 5000));
+        } finally {
+            process.destroy();
+        }
+    }
+
+    public void testAsync() throws Exception {
+        ProcessUtils processUtils = new ProcessUtils();
+        List<JProcess> processes = processUtils.getProcessesAsync().get();
+        JProcess thisProcess = processUtils.getThis(processes);
+        assertNotNull(thisProcess);
+        assertNotNull(processUtils.getSnapshotAsync(0).get().getByPID(thisProcess.pid));
+        if (!OS.isWindows)
+            assertTrue(thisProcess.signalAsync(0).get().isSuccess()); // Signal 0 only checks existence
+    }
+
+    public void testSplitArgs() {
+        assertEquals(Arrays.asList("-c", "echo a b", "", "x"), ProcessUtils.splitArgs(" -c \"echo a b\"  \"\" x "));
+        assertEquals(0, ProcessUtils.splitArgs("").size());
+    }
+
+    public void testStartProcess() throws Exception {
+        if (OS.isWindows) return;
+        ProcessUtils processUtils = new ProcessUtils();
+        JProcess sleep = processUtils.startProcess(new File("/bin/sleep"), "38.6", null, null, null, null, null);
+        try {
+            assertEquals(ProcessUtils.getThisPID(), sleep.parentPid);
+            assertEquals("/bin/sleep 38.6", sleep.command);
+            assertNotNull(sleep.timestampStart);
+            assertTrue(processUtils.isAlive(sleep));
+        } finally {
+            sleep.kill();
+        }
+    }
+
+    public void testStartProcessStreams() throws Exception {
+        if (OS.isWindows) return;
+        ProcessUtils processUtils = new ProcessUtils();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(), errorOutput = new ByteArrayOutputStream();
+        Map<String, String> environment = new HashMap<>();
+        environment.put("JPROCESSES2_TEST", "hello");
+        File workingDir = new File(System.getProperty("java.io.tmpdir")).getCanonicalFile();
+        JProcess p = processUtils.startProcess(new File("/bin/sh"),
+                "-c \"read line; echo $line $JPROCESSES2_TEST; pwd; echo error 1>&2\"", workingDir, environment,
+                new ByteArrayInputStream("input\n".getBytes()), errorOutput, output);
+        assertNotNull(p.pid);
+        long deadline = System.currentTimeMillis() + 5000;
+        String expected = "input hello\n" + workingDir.getPath() + "\n";
+        while (System.currentTimeMillis() < deadline
+                && (!output.toString().equals(expected) || !errorOutput.toString().equals("error\n"))) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, output.toString());
+        assertEquals("error\n", errorOutput.toString());
+    }
+}
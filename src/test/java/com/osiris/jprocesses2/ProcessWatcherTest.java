@@ -0,0 +1,78 @@
+package com.osiris.jprocesses2;
+
+import com.osiris.jprocesses2.util.OS;
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ProcessWatcherTest extends TestCase {
+
+    private static JProcess startSleep(ProcessUtils processUtils, String seconds) throws Exception {
+        new ProcessBuilder("sleep", seconds).start();
+        String thisPid = processUtils.getThis().pid;
+        for (JProcess p : processUtils.getProcesses()) {
+            if (thisPid.equals(p.parentPid) && ("sleep " + seconds).equals(p.command)) return p;
+        }
+        throw new AssertionError("sleep " + seconds + " not found");
+    }
+
+    private void testExit(ProcessWatcher watcher, String seconds) throws Exception {
+        final CountDownLatch exited = new CountDownLatch(1);
+        final JProcess sleep = startSleep(watcher.processUtils, seconds);
+        watcher.addListener(new ProcessWatcher.Listener() {
+            @Override
+            public void onExit(JProcess process) {
+                if (process == sleep) exited.countDown();
+            }
+        });
+        Future<JProcess> future = watcher.watch(sleep);
+        Thread.sleep(100);
+        assertFalse(future.isDone());
+        assertEquals(1, watcher.size());
+
+        sleep.kill();
+        assertSame(sleep, future.get(2, TimeUnit.SECONDS));
+        assertTrue(exited.await(1, TimeUnit.SECONDS));
+        assertEquals(0, watcher.size());
+    }
+
+    public void testExit() throws Exception {
+        if (OS.isWindows) return;
+        try (ProcessWatcher watcher = new ProcessWatcher()) {
+            System.out.println("Native process watcher: " + watcher.isNative());
+            testExit(watcher, "36.4");
+        }
+    }
+
+    public void testExitPolling() throws Exception {
+        if (OS.isWindows) return;
+        try (ProcessWatcher watcher = new ProcessWatcher(new ProcessUtils(), 50, false)) {
+            assertFalse(watcher.isNative());
+            testExit(watcher, "37.5");
+        }
+    }
+
+    public void testNotRunning() throws Exception {
+        JProcess gone = new JProcess();
+        gone.pid = "999999999";
+        try (ProcessWatcher watcher = new ProcessWatcher(new ProcessUtils(), 50)) {
+            assertSame(gone, watcher.watch(gone).get(2, TimeUnit.SECONDS));
+        }
+    }
+
+    public void testCancelAndClose() throws Exception {
+        ProcessUtils processUtils = new ProcessUtils();
+        JProcess thisProcess = processUtils.getThis();
+        ProcessWatcher watcher = new ProcessWatcher(processUtils, 50);
+        Future<JProcess> first = watcher.watch(thisProcess);
+        Future<JProcess> second = watcher.watch(thisProcess);
+        assertEquals(2, watcher.size());
+        first.cancel(false);
+        assertEquals(1, watcher.size());
+        watcher.close();
+        assertTrue(second.isCancelled());
+        assertEquals(0, watcher.size());
+    }
+}
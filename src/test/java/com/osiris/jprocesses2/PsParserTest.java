@@ -0,0 +1,52 @@
+package com.osiris.jprocesses2;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class PsParserTest extends TestCase {
+
+    private static List<JProcess> parse(List<ProcessField> columns, String output) throws IOException {
+        ProcessCollector collector = new ProcessCollector(4);
+        new PsParser(columns).parse(new ByteArrayInputStream(output.getBytes()), collector);
+        return collector.list;
+    }
+
+    public void testParse() throws IOException {
+        List<JProcess> list = parse(Arrays.asList(ProcessField.PID, ProcessField.USERNAME, ProcessField.VIRTUAL_MEMORY,
+                ProcessField.MEMORY, ProcessField.TIMESTAMP_START, ProcessField.PRIORITY, ProcessField.PARENT_PID,
+                ProcessField.NAME, ProcessField.COMMAND),
+                "  PID RUSER       VSZ   RSS                  STARTED  NI  PPID COMMAND         COMMAND\n" +
+                        "    1 root      23968  9628 Sun Oct 18 09:45:29 2026   0     0 systemd         /sbin/init splash\n" +
+                        "  812 alice   123456789 20000 Mon Oct  5 08:00:01 2026 -20  1 Web Content     /usr/lib/firefox -contentproc\n");
+        assertEquals(2, list.size());
+        JProcess init = list.get(0);
+        assertEquals("1", init.pid);
+        assertEquals("root", init.username);
+        assertEquals("23968", init.usedVirtualMemoryInKB);
+        assertEquals("9628", init.usedMemoryInKB);
+        assertEquals("Sun Oct 18 09:45:29 2026", init.timestampStart);
+        assertEquals("0", init.priority);
+        assertEquals("0", init.parentPid);
+        assertEquals("systemd", init.name);
+        assertEquals("/sbin/init splash", init.command);
+        JProcess firefox = list.get(1); // Overflowing columns and name containing a space
+        assertEquals("123456789", firefox.usedVirtualMemoryInKB);
+        assertEquals("Mon Oct 5 08:00:01 2026", firefox.timestampStart);
+        assertEquals("-20", firefox.priority);
+        assertEquals("Web Content", firefox.name);
+        assertEquals("/usr/lib/firefox -contentproc", firefox.command);
+    }
+
+    public void testLongCommandAndNoTrailingNewline() throws IOException {
+        StringBuilder command = new StringBuilder();
+        for (int i = 0; i < 20000; i++) command.append("-Darg").append(i).append(' ');
+        List<JProcess> list = parse(Arrays.asList(ProcessField.PID, ProcessField.COMMAND),
+                "  PID COMMAND\n   42 java " + command);
+        assertEquals(1, list.size());
+        assertEquals("java " + command.toString().trim(), list.get(0).command);
+    }
+}
@@ -0,0 +1,62 @@
+package com.osiris.jprocesses2;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.*;
+
+public class TopNTest extends TestCase {
+
+    public void testMatchesSort() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            int count = random.nextInt(200);
+            int n = random.nextInt(15);
+            List<JProcess> list = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                JProcess p = new JProcess();
+                p.pid = "" + i;
+                p.usedMemoryInKB = random.nextInt(10) == 0 ? null : "" + random.nextInt(1000);
+                list.add(p);
+            }
+            List<Long> expected = new ArrayList<>();
+            for (JProcess p : list) {
+                if (p.usedMemoryInKB != null) expected.add(Long.parseLong(p.usedMemoryInKB));
+            }
+            Collections.sort(expected, Collections.reverseOrder());
+            expected = expected.subList(0, Math.min(n, expected.size()));
+            List<Long> actual = new ArrayList<>();
+            for (JProcess p : new ProcessSnapshot(list).topBy(ProcessMetric.MEMORY, n)) {
+                actual.add(Long.parseLong(p.usedMemoryInKB));
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    public void testParse() {
+        assertEquals(123, ProcessMetric.parse(" 123 "));
+        assertEquals(-1, ProcessMetric.parse("12a"));
+        assertEquals(-1, ProcessMetric.parse(""));
+        assertEquals(-1, ProcessMetric.parse(null));
+    }
+
+    public void testTable() {
+        ProcessTable table = new ProcessTable.Builder()
+                .add(1, 0, 100, 5000, -1, 0, "a", null, null)
+                .add(2, 0, 300, 1000, -1, 0, "b", null, null)
+                .add(3, 0, -1, 3000, -1, 0, "c", null, null)
+                .add(4, 0, 200, -1, -1, 0, "d", null, null)
+                .build();
+        assertTrue(Arrays.equals(new int[]{1, 3}, table.topBy(ProcessMetric.MEMORY, 2)));
+        assertTrue(Arrays.equals(new int[]{0, 2, 1}, table.topBy(ProcessMetric.VIRTUAL_MEMORY, 5)));
+    }
+
+    public void testGetTopBy() throws IOException {
+        List<JProcess> top = new ProcessUtils().getTopBy(ProcessMetric.MEMORY, 5);
+        assertTrue(top.size() > 0 && top.size() <= 5);
+        for (int i = 1; i < top.size(); i++) {
+            assertTrue(ProcessMetric.MEMORY.getValue(top.get(i - 1)) >= ProcessMetric.MEMORY.getValue(top.get(i)));
+        }
+        assertNotNull(top.get(0).name);
+    }
+}
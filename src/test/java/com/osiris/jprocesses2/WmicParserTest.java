@@ -0,0 +1,26 @@
+package com.osiris.jprocesses2;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class WmicParserTest extends TestCase {
+
+    public void testParse() throws IOException {
+        String output = "\r\r\n\r\r\nCommandLine=C:\\WINDOWS\\Explorer.EXE\r\r\nName=explorer.exe\r\r\nProcessId=5612\r\r\n" +
+                "WorkingSetSize=210325504\r\r\n\r\r\n\r\r\nCommandLine=\r\r\nName=System Idle Process\r\r\nProcessId=0\r\r\n" +
+                "WorkingSetSize=8192\r\r\n\r\r\n\r\r\n";
+        ProcessCollector collector = new ProcessCollector(2);
+        new WmicParser(Arrays.asList(ProcessField.PID, ProcessField.NAME, ProcessField.MEMORY, ProcessField.COMMAND))
+                .parse(new ByteArrayInputStream(output.getBytes()), collector);
+        assertEquals(2, collector.list.size());
+        JProcess explorer = collector.list.get(0);
+        assertEquals("5612", explorer.pid);
+        assertEquals("explorer.exe", explorer.name);
+        assertEquals("210325504", explorer.usedMemoryInKB);
+        assertEquals("C:\\WINDOWS\\Explorer.EXE", explorer.command);
+        assertEquals("System Idle Process", collector.list.get(1).name);
+    }
+}
@@ -0,0 +1,50 @@
+package com.osiris.jprocesses2.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncExecutorTest extends TestCase {
+
+    public void testConcurrencyIsBounded() throws Exception {
+        ExecutorService executor = AsyncExecutor.create(2);
+        final AtomicInteger running = new AtomicInteger(), maxRunning = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    int now = running.incrementAndGet();
+                    while (true) {
+                        int max = maxRunning.get();
+                        if (now <= max || maxRunning.compareAndSet(max, now)) break;
+                    }
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException ignored) {
+                    }
+                    running.decrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) future.get();
+        assertEquals(2, maxRunning.get());
+        executor.shutdown();
+    }
+
+    public void testSet() {
+        ExecutorService executor = AsyncExecutor.create(1);
+        AsyncExecutor.set(executor);
+        try {
+            assertSame(executor, AsyncExecutor.get());
+        } finally {
+            AsyncExecutor.set(null);
+            executor.shutdown();
+        }
+        assertNotSame(executor, AsyncExecutor.get());
+    }
+}
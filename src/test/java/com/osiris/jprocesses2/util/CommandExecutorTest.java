@@ -0,0 +1,53 @@
+package com.osiris.jprocesses2.util;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public class CommandExecutorTest extends TestCase {
+
+    public void testExecute() throws IOException {
+        if (OS.isWindows) return;
+        CommandExecutor.Result result = new CommandExecutor().execute("sh", "-c", "echo out; echo err 1>&2; exit 3");
+        assertEquals(3, result.exitCode);
+        assertFalse(result.timedOut);
+        assertFalse(result.truncated);
+        assertFalse(result.isSuccess());
+        assertEquals("out\n", result.getOutput());
+        assertEquals("err\n", result.getError());
+    }
+
+    public void testTimeout() throws IOException {
+        if (OS.isWindows) return;
+        long start = System.currentTimeMillis();
+        CommandExecutor.Result result = new CommandExecutor(200, 1024).execute("sleep", "40.8");
+        assertTrue(result.timedOut);
+        assertFalse(result.isSuccess());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    public void testOutputIsCapped() throws IOException {
+        if (OS.isWindows) return;
+        CommandExecutor.Result result = new CommandExecutor(10000, 1000)
+                .execute("sh", "-c", "head -c 300000 /dev/zero; head -c 300000 /dev/zero 1>&2");
+        assertEquals(0, result.exitCode); // Wasn't blocked by full pipes
+        assertTrue(result.truncated);
+        assertEquals(1000, result.output.length);
+        assertEquals(1000, result.error.length);
+    }
+
+    public void testStartTimeout() throws IOException {
+        if (OS.isWindows) return;
+        try (CommandExecutor.Execution execution = new CommandExecutor(200, 1024).start("sleep", "41.9");
+             InputStream in = execution.getInputStream()) {
+            assertEquals(-1, in.read()); // Ends once terminated
+            try {
+                execution.checkTimeout();
+                fail();
+            } catch (IOException expected) {
+            }
+            assertTrue(execution.isTimedOut());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.osiris.jprocesses2.util;
+
+import com.osiris.jprocesses2.ProcessUtils;
+import junit.framework.TestCase;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MetricsTest extends TestCase {
+
+    @Override
+    protected void setUp() {
+        Metrics.reset();
+        Metrics.enabled = true;
+    }
+
+    @Override
+    protected void tearDown() {
+        Metrics.enabled = false;
+        Metrics.reset();
+    }
+
+    public void testFetch() throws Exception {
+        int count = new ProcessUtils().getProcesses().size();
+        assertEquals(1, Metrics.getCount(Metrics.Counter.FETCHES));
+        HistogramSnapshot fetch = Metrics.getHistogram(Metrics.Histogram.FETCH_NANOS);
+        assertEquals(1, fetch.getCount());
+        assertTrue(fetch.getMax() > 0);
+        assertTrue(Metrics.getHistogram(Metrics.Histogram.FETCH_READ_NANOS).getCount() > 0);
+        assertTrue(Metrics.getHistogram(Metrics.Histogram.FETCH_PARSE_NANOS).getCount() > 0);
+        assertEquals(count, Metrics.getHistogram(Metrics.Histogram.PROCESSES_PER_FETCH).getMax());
+    }
+
+    public void testCommand() throws Exception {
+        if (OS.isWindows) return;
+        new CommandExecutor().execute("true");
+        assertEquals(1, Metrics.getCount(Metrics.Counter.FORKS));
+        assertEquals(1, Metrics.getHistogram(Metrics.Histogram.COMMAND_NANOS).getCount());
+        new CommandExecutor(100, 1024).execute("sleep", "10");
+        assertEquals(1, Metrics.getCount(Metrics.Counter.COMMAND_TIMEOUTS));
+    }
+
+    public void testHistogram() {
+        for (int i = 1; i <= 100; i++) {
+            Metrics.record(Metrics.Histogram.COMMAND_NANOS, i);
+        }
+        HistogramSnapshot snapshot = Metrics.getHistogram(Metrics.Histogram.COMMAND_NANOS);
+        assertEquals(100, snapshot.getCount());
+        assertEquals(5050, snapshot.getSum());
+        assertEquals(100, snapshot.getMax());
+        assertEquals(50.5, snapshot.getMean());
+        // Percentiles are the upper bounds of power of two buckets
+        assertTrue(snapshot.getP50() >= 50 && snapshot.getP50() < 100);
+        assertEquals(100, snapshot.getP99());
+    }
+
+    public void testDisabled() {
+        Metrics.enabled = false;
+        Metrics.increment(Metrics.Counter.FORKS);
+        Metrics.record(Metrics.Histogram.COMMAND_NANOS, 1);
+        assertEquals(0, Metrics.start());
+        assertEquals(0, Metrics.getCount(Metrics.Counter.FORKS));
+        assertEquals(0, Metrics.getHistogram(Metrics.Histogram.COMMAND_NANOS).getCount());
+    }
+
+    public void testListener() {
+        final List<Object> events = new ArrayList<>();
+        Metrics.Listener listener = new Metrics.Listener() {
+            @Override
+            public void onCount(Metrics.Counter counter, long delta) {
+                events.add(counter);
+            }
+
+            @Override
+            public void onRecord(Metrics.Histogram histogram, long value) {
+                events.add(histogram);
+            }
+        };
+        Metrics.addListener(listener);
+        try {
+            Metrics.increment(Metrics.Counter.SIGNALS_SENT);
+            Metrics.record(Metrics.Histogram.FETCH_NANOS, 5);
+        } finally {
+            Metrics.removeListener(listener);
+        }
+        assertEquals(2, events.size());
+        assertEquals(Metrics.Counter.SIGNALS_SENT, events.get(0));
+        assertEquals(Metrics.Histogram.FETCH_NANOS, events.get(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testMBean() throws Exception {
+        Metrics.registerMBean();
+        try {
+            Metrics.increment(Metrics.Counter.FORKS);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+            assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+            assertNotNull(server.getAttribute(name, "Counters"));
+            assertNotNull(server.getAttribute(name, "Histograms"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0, Metrics.getCount(Metrics.Counter.FORKS));
+        } finally {
+            Metrics.unregisterMBean();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.osiris.jprocesses2.util;
+
+import junit.framework.TestCase;
+
+import java.text.ParseException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+public class NativeUtilsTest extends TestCase {
+
+    private static Date date(int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, second);
+        return calendar.getTime();
+    }
+
+    public void testParseUnixLongTimeToFullDate() throws ParseException {
+        NativeUtils nativeUtils = new NativeUtils();
+        nativeUtils.setCustomLocale(Locale.ENGLISH); // Independent of the default locale
+        assertEquals(date(2026, Calendar.OCTOBER, 18, 9, 45, 29), nativeUtils.parseUnixLongTimeToFullDate("Sun Oct 18 09:45:29 2026"));
+        assertEquals(date(2026, Calendar.OCTOBER, 5, 8, 0, 1), nativeUtils.parseUnixLongTimeToFullDate("Mon Oct  5 08:00:01 2026"));
+        assertEquals(date(2026, Calendar.OCTOBER, 5, 8, 0, 1), nativeUtils.parseUnixLongTimeToFullDate("Oct 5 08:00:01 2026"));
+        try {
+            nativeUtils.parseUnixLongTimeToFullDate("not a date");
+            fail();
+        } catch (ParseException expected) {
+        }
+    }
+}
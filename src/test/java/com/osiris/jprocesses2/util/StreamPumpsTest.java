@@ -0,0 +1,79 @@
+package com.osiris.jprocesses2.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class StreamPumpsTest extends TestCase {
+
+    private static Process start(String script) throws Exception {
+        Process process = new ProcessBuilder("sh", "-c", script).start();
+        process.getOutputStream().close();
+        return process;
+    }
+
+    public void testPumpsStdoutAndStderrConcurrently() throws Exception {
+        if (OS.isWindows) return;
+        // More than fits into a pipe, thus blocks if one of the streams isn't drained
+        Process process = start("head -c 1000000 /dev/zero; head -c 500000 /dev/zero 1>&2; echo end");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(), err = new ByteArrayOutputStream();
+        Future<Long> outPump = StreamPumps.pump(process, process.getInputStream(), out, false);
+        Future<Long> errPump = StreamPumps.pump(process, process.getErrorStream(), err, false);
+        assertEquals(1000004L, (long) outPump.get(10, TimeUnit.SECONDS));
+        assertEquals(500000L, (long) errPump.get(10, TimeUnit.SECONDS));
+        assertEquals(1000004, out.size());
+        assertTrue(out.toString().endsWith("end\n"));
+        assertEquals(0, process.waitFor());
+    }
+
+    public void testManyProcesses() throws Exception {
+        if (OS.isWindows) return;
+        List<Process> processes = new ArrayList<>();
+        List<Future<Long>> pumps = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Process process = start("head -c 200000 /dev/zero; head -c 100000 /dev/zero 1>&2");
+            processes.add(process);
+            pumps.add(StreamPumps.discard(process, process.getInputStream()));
+            pumps.add(StreamPumps.discard(process, process.getErrorStream()));
+        }
+        for (int i = 0; i < pumps.size(); i++) {
+            assertEquals(i % 2 == 0 ? 200000L : 100000L, (long) pumps.get(i).get(10, TimeUnit.SECONDS));
+        }
+        for (Process process : processes) {
+            assertEquals(0, process.waitFor());
+        }
+    }
+
+    public void testChannelSink() throws Exception {
+        if (OS.isWindows) return;
+        File file = File.createTempFile("jprocesses2", ".out");
+        file.deleteOnExit();
+        Process process = start("head -c 123456 /dev/zero");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            assertEquals(123456L, (long) StreamPumps.pump(process, process.getInputStream(), channel, false)
+                    .get(10, TimeUnit.SECONDS));
+            assertEquals(123456L, channel.size());
+        }
+    }
+
+    public void testCancel() throws Exception {
+        if (OS.isWindows) return;
+        Process process = start("sleep 39.7");
+        try {
+            Future<Long> pump = StreamPumps.discard(process, process.getInputStream());
+            Thread.sleep(50);
+            assertFalse(pump.isDone());
+            assertTrue(pump.cancel(false));
+        } finally {
+            process.destroy();
+        }
+    }
+}